@@ -0,0 +1,130 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "cacheinvalidation.enabled", havingValue = "true")
+public class CacheInvalidationListener {
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationListener.class);
+  private static final String CHANNEL = "notify_cache_invalidation";
+  private static final int CONNECTION_CHECK_TIMEOUT_SECONDS = 5;
+
+  private final CacheInvalidator cacheInvalidator;
+  private final CacheInvalidationProperties cacheInvalidationProperties;
+  private final DataSourceProperties dataSourceProperties;
+  private final ExecutorService listenerExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-listener");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private volatile boolean running;
+
+  public CacheInvalidationListener(
+      CacheInvalidator cacheInvalidator,
+      CacheInvalidationProperties cacheInvalidationProperties,
+      DataSourceProperties dataSourceProperties) {
+    this.cacheInvalidator = cacheInvalidator;
+    this.cacheInvalidationProperties = cacheInvalidationProperties;
+    this.dataSourceProperties = dataSourceProperties;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    running = true;
+    listenerExecutor.execute(this::listen);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    listenerExecutor.shutdownNow();
+  }
+
+  private void listen() {
+    Duration backoff = cacheInvalidationProperties.getMinBackoff();
+    while (running) {
+      // A connection of its own outside the pool, held for as long as it stays up. Notifications
+      // only come from the primary, so this never goes to a replica
+      try (Connection connection =
+          DriverManager.getConnection(
+              dataSourceProperties.determineUrl(),
+              dataSourceProperties.determineUsername(),
+              dataSourceProperties.determinePassword())) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+
+        // Anything changed while not listening was missed, so start again from the database
+        cacheInvalidator.resync();
+        backoff = cacheInvalidationProperties.getMinBackoff();
+        log.atInfo().setMessage("Listening for cache invalidations").log();
+
+        receiveNotifications(connection);
+      } catch (SQLException | RuntimeException e) {
+        if (!running) {
+          return;
+        }
+        log.atWarn()
+            .setMessage("Cache invalidation listener disconnected, reconnecting")
+            .addKeyValue("backoff", backoff)
+            .setCause(e)
+            .log();
+        if (!sleep(backoff)) {
+          return;
+        }
+        backoff = min(backoff.multipliedBy(2), cacheInvalidationProperties.getMaxBackoff());
+      }
+    }
+  }
+
+  private void receiveNotifications(Connection connection) throws SQLException {
+    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+    int pollTimeoutMillis = (int) cacheInvalidationProperties.getPollTimeout().toMillis();
+    while (running) {
+      PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMillis);
+      if (notifications == null) {
+        // A quiet connection may have been dropped without us hearing about it
+        if (!connection.isValid(CONNECTION_CHECK_TIMEOUT_SECONDS)) {
+          throw new SQLException("Cache invalidation connection is no longer valid");
+        }
+        continue;
+      }
+      for (PGNotification notification : notifications) {
+        cacheInvalidator.invalidate(notification.getParameter());
+      }
+    }
+  }
+
+  private static boolean sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static Duration min(Duration first, Duration second) {
+    return first.compareTo(second) <= 0 ? first : second;
+  }
+}
@@ -0,0 +1,16 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cacheinvalidation")
+public class CacheInvalidationProperties {
+  private boolean enabled;
+  private Duration pollTimeout;
+  private Duration minBackoff;
+  private Duration maxBackoff;
+}
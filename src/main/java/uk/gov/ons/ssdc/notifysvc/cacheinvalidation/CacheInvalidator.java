@@ -0,0 +1,115 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
+import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
+import uk.gov.ons.ssdc.notifysvc.service.FulfilmentAllowList;
+import uk.gov.ons.ssdc.notifysvc.utils.EventCodec;
+
+@Component
+public class CacheInvalidator {
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidator.class);
+
+  private final CacheManager cacheManager;
+  private final EntityManagerFactory entityManagerFactory;
+  private final FulfilmentAllowList fulfilmentAllowList;
+
+  public CacheInvalidator(
+      CacheManager cacheManager,
+      EntityManagerFactory entityManagerFactory,
+      FulfilmentAllowList fulfilmentAllowList) {
+    this.cacheManager = cacheManager;
+    this.entityManagerFactory = entityManagerFactory;
+    this.fulfilmentAllowList = fulfilmentAllowList;
+  }
+
+  public void invalidate(String payload) {
+    ChangedRow changedRow;
+    try {
+      changedRow = EventCodec.readValue(payload, ChangedRow.class);
+    } catch (IOException e) {
+      log.atWarn()
+          .setMessage("Unreadable cache invalidation, reloading all cached reference data")
+          .setCause(e)
+          .log();
+      resync();
+      return;
+    }
+
+    // Truncates, and any row we can't pick a key out of, leave no way of telling what changed
+    if (changedRow.table() == null || changedRow.packCode() == null) {
+      resync();
+      return;
+    }
+
+    switch (changedRow.table()) {
+      case "sms_template" -> evictTemplate(
+          "smsTemplates", SmsTemplate.class, changedRow.packCode());
+      case "email_template" -> evictTemplate(
+          "emailTemplates", EmailTemplate.class, changedRow.packCode());
+      case "fulfilment_survey_sms_template" -> {
+        if (changedRow.surveyId() == null) {
+          resync();
+        } else {
+          fulfilmentAllowList.evictSmsTemplate(changedRow.surveyId(), changedRow.packCode());
+        }
+      }
+      case "fulfilment_survey_email_template" -> {
+        if (changedRow.surveyId() == null) {
+          resync();
+        } else {
+          fulfilmentAllowList.evictEmailTemplate(changedRow.surveyId(), changedRow.packCode());
+        }
+      }
+      default -> log.atWarn()
+          .setMessage("Ignoring cache invalidation for unknown table")
+          .addKeyValue("table", changedRow.table())
+          .log();
+    }
+  }
+
+  public void resync() {
+    clearCache("smsTemplates");
+    clearCache("emailTemplates");
+    entityManagerFactory.getCache().evict(SmsTemplate.class);
+    entityManagerFactory.getCache().evict(EmailTemplate.class);
+    fulfilmentAllowList.refresh();
+    log.atInfo().setMessage("Reloaded all cached reference data").log();
+  }
+
+  public void evictTemplates(String packCode) {
+    evictTemplate("smsTemplates", SmsTemplate.class, packCode);
+    evictTemplate("emailTemplates", EmailTemplate.class, packCode);
+  }
+
+  private void evictTemplate(String cacheName, Class<?> entityClass, String packCode) {
+    Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null) {
+      cache.evict(packCode);
+    }
+    // Also held in the second level cache, when running with it
+    entityManagerFactory.getCache().evict(entityClass, packCode);
+
+    log.atDebug()
+        .setMessage("Evicted changed template")
+        .addKeyValue("cache", cacheName)
+        .addKeyValue("packCode", packCode)
+        .log();
+  }
+
+  private void clearCache(String cacheName) {
+    Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  private record ChangedRow(String table, String packCode, UUID surveyId) {}
+}
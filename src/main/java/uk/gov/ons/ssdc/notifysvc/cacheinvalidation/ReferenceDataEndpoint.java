@@ -0,0 +1,29 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// Lets an operator reload the cached templates and allow list, or evict one pack code, without a
+// restart. It has no authentication of its own, so it is only exposed over JMX, never over HTTP
+@Component
+@Endpoint(id = "referencedata")
+public class ReferenceDataEndpoint {
+  private final CacheInvalidator cacheInvalidator;
+
+  public ReferenceDataEndpoint(CacheInvalidator cacheInvalidator) {
+    this.cacheInvalidator = cacheInvalidator;
+  }
+
+  @WriteOperation
+  public void reload() {
+    cacheInvalidator.resync();
+  }
+
+  @DeleteOperation
+  public void evictTemplate(@Selector String packCode) {
+    cacheInvalidator.evictTemplates(packCode);
+  }
+}
@@ -0,0 +1,57 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+import uk.gov.service.notify.SendSmsResponse;
+
+@Component
+@ConditionalOnProperty(
+    name = "notifytransport.type",
+    havingValue = "blocking",
+    matchIfMissing = true)
+public class BlockingNotifyTransport implements NotifyTransport {
+  private final NotifyServiceRefMapping notifyServiceRefMapping;
+
+  public BlockingNotifyTransport(NotifyServiceRefMapping notifyServiceRefMapping) {
+    this.notifyServiceRefMapping = notifyServiceRefMapping;
+  }
+
+  @Override
+  public CompletableFuture<SendSmsResponse> sendSms(
+      String notifyServiceRef,
+      String templateId,
+      String phoneNumber,
+      Map<String, String> personalisation,
+      String reference) {
+    try {
+      return CompletableFuture.completedFuture(
+          notifyServiceRefMapping
+              .getNotifyClient(notifyServiceRef)
+              .sendSms(templateId, phoneNumber, personalisation, reference));
+    } catch (NotificationClientException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public CompletableFuture<SendEmailResponse> sendEmail(
+      String notifyServiceRef,
+      String templateId,
+      String emailAddress,
+      Map<String, String> personalisation,
+      String reference) {
+    try {
+      return CompletableFuture.completedFuture(
+          notifyServiceRefMapping
+              .getNotifyClient(notifyServiceRef)
+              .sendEmail(templateId, emailAddress, personalisation, reference));
+    } catch (NotificationClientException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+}
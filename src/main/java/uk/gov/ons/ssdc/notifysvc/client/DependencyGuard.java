@@ -0,0 +1,41 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+// Calls to each dependency are limited by a bulkhead, then rejected outright while its circuit
+// breaker is open. Rejections surface as BulkheadFullException or CallNotPermittedException
+@Component
+public class DependencyGuard {
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final BulkheadRegistry bulkheadRegistry;
+
+  public DependencyGuard(
+      CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+    this.circuitBreakerRegistry = circuitBreakerRegistry;
+    this.bulkheadRegistry = bulkheadRegistry;
+  }
+
+  public <T> T call(String dependency, Supplier<T> call) {
+    CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(dependency);
+    Bulkhead bulkhead = bulkheadRegistry.bulkhead(dependency);
+    return Bulkhead.decorateSupplier(
+            bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call))
+        .get();
+  }
+
+  public <T> CompletableFuture<T> callAsync(
+      String dependency, String configName, Supplier<CompletableFuture<T>> call) {
+    CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(dependency, configName);
+    Bulkhead bulkhead = bulkheadRegistry.bulkhead(dependency, configName);
+    return Bulkhead.decorateCompletionStage(
+            bulkhead, CircuitBreaker.decorateCompletionStage(circuitBreaker, call::get))
+        .get()
+        .toCompletableFuture();
+  }
+}
@@ -1,5 +1,6 @@
 package uk.gov.ons.ssdc.notifysvc.client;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -22,26 +23,41 @@ public class ExceptionManagerClient {
   @Value("${exceptionmanager.connection.port}")
   private String port;
 
+  private static final String DEPENDENCY_NAME = "exceptionmanager";
+
+  private final RestTemplate restTemplate;
+  private final DependencyGuard dependencyGuard;
+
+  public ExceptionManagerClient(
+      @Qualifier("exceptionManagerRestTemplate") RestTemplate restTemplate,
+      DependencyGuard dependencyGuard) {
+    this.restTemplate = restTemplate;
+    this.dependencyGuard = dependencyGuard;
+  }
+
   public ExceptionReportResponse reportException(
       String messageHash,
       String service,
       String subscription,
-      Throwable cause,
+      String exceptionClass,
+      String exceptionMessage,
       String stackTraceRootCause) {
 
     ExceptionReport exceptionReport = new ExceptionReport();
-    exceptionReport.setExceptionClass(cause.getClass().getName());
-    exceptionReport.setExceptionMessage(cause.getMessage());
+    exceptionReport.setExceptionClass(exceptionClass);
+    exceptionReport.setExceptionMessage(exceptionMessage);
     exceptionReport.setExceptionRootCause(stackTraceRootCause);
     exceptionReport.setMessageHash(messageHash);
     exceptionReport.setService(service);
     exceptionReport.setSubscription(subscription);
 
-    RestTemplate restTemplate = new RestTemplate();
     UriComponents uriComponents = createUriComponents("/reportexception");
 
-    return restTemplate.postForObject(
-        uriComponents.toUri(), exceptionReport, ExceptionReportResponse.class);
+    return dependencyGuard.call(
+        DEPENDENCY_NAME,
+        () ->
+            restTemplate.postForObject(
+                uriComponents.toUri(), exceptionReport, ExceptionReportResponse.class));
   }
 
   public void respondToPeek(String messageHash, byte[] payload) {
@@ -50,18 +66,20 @@ public class ExceptionManagerClient {
     peekReply.setMessageHash(messageHash);
     peekReply.setMessagePayload(payload);
 
-    RestTemplate restTemplate = new RestTemplate();
     UriComponents uriComponents = createUriComponents("/peekreply");
 
-    restTemplate.postForObject(uriComponents.toUri(), peekReply, Void.class);
+    dependencyGuard.call(
+        DEPENDENCY_NAME,
+        () -> restTemplate.postForObject(uriComponents.toUri(), peekReply, Void.class));
   }
 
   public void storeMessageBeforeSkipping(SkippedMessage skippedMessage) {
 
-    RestTemplate restTemplate = new RestTemplate();
     UriComponents uriComponents = createUriComponents("/storeskippedmessage");
 
-    restTemplate.postForObject(uriComponents.toUri(), skippedMessage, Void.class);
+    dependencyGuard.call(
+        DEPENDENCY_NAME,
+        () -> restTemplate.postForObject(uriComponents.toUri(), skippedMessage, Void.class));
   }
 
   private UriComponents createUriComponents(String path) {
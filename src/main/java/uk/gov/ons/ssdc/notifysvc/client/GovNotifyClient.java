@@ -0,0 +1,156 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMIT_ERROR_HTTP_STATUS;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimiter;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+import uk.gov.service.notify.SendSmsResponse;
+
+@Component
+public class GovNotifyClient {
+  private static final String NOTIFY_DEPENDENCY_PREFIX = "notify-";
+
+  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final NotifyRateLimiter notifyRateLimiter;
+  private final NotifyTransport notifyTransport;
+  private final DependencyGuard dependencyGuard;
+
+  public GovNotifyClient(
+      NotifyServiceRefMapping notifyServiceRefMapping,
+      NotifyRateLimiter notifyRateLimiter,
+      NotifyTransport notifyTransport,
+      DependencyGuard dependencyGuard) {
+    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.notifyRateLimiter = notifyRateLimiter;
+    this.notifyTransport = notifyTransport;
+    this.dependencyGuard = dependencyGuard;
+  }
+
+  // Sync callers wait out the rate limit on their own thread, inside the guard, so an open
+  // breaker or full bulkhead rejects the send before a permit is reserved
+  public SendSmsResponse sendSms(
+      String notifyServiceRef,
+      String templateId,
+      String phoneNumber,
+      Map<String, String> personalisation)
+      throws NotificationClientException {
+    String senderId = notifyServiceRefMapping.getSenderId(notifyServiceRef);
+    return await(
+        send(
+            notifyServiceRef,
+            () -> {
+              notifyRateLimiter.acquire(notifyServiceRef);
+              return notifyTransport.sendSms(
+                  notifyServiceRef, templateId, phoneNumber, personalisation, senderId);
+            }));
+  }
+
+  // Async callers get the rate limit wait chained onto the future instead of slept through
+  public CompletableFuture<SendSmsResponse> sendSmsAsync(
+      String notifyServiceRef,
+      String templateId,
+      String phoneNumber,
+      Map<String, String> personalisation) {
+    String senderId = notifyServiceRefMapping.getSenderId(notifyServiceRef);
+    return send(
+        notifyServiceRef,
+        () ->
+            notifyRateLimiter
+                .acquireAsync(notifyServiceRef)
+                .thenCompose(
+                    ignored ->
+                        notifyTransport.sendSms(
+                            notifyServiceRef, templateId, phoneNumber, personalisation, senderId)));
+  }
+
+  public SendEmailResponse sendEmail(
+      String notifyServiceRef,
+      String templateId,
+      String emailAddress,
+      Map<String, String> personalisation,
+      String reference)
+      throws NotificationClientException {
+    return await(
+        send(
+            notifyServiceRef,
+            () -> {
+              notifyRateLimiter.acquire(notifyServiceRef);
+              return notifyTransport.sendEmail(
+                  notifyServiceRef, templateId, emailAddress, personalisation, reference);
+            }));
+  }
+
+  public CompletableFuture<SendEmailResponse> sendEmailAsync(
+      String notifyServiceRef,
+      String templateId,
+      String emailAddress,
+      Map<String, String> personalisation,
+      String reference) {
+    return send(
+        notifyServiceRef,
+        () ->
+            notifyRateLimiter
+                .acquireAsync(notifyServiceRef)
+                .thenCompose(
+                    ignored ->
+                        notifyTransport.sendEmail(
+                            notifyServiceRef,
+                            templateId,
+                            emailAddress,
+                            personalisation,
+                            reference)));
+  }
+
+  private <T> CompletableFuture<T> send(
+      String notifyServiceRef, Supplier<CompletableFuture<T>> send) {
+    return recordOutcome(notifyServiceRef, guard(notifyServiceRef, send));
+  }
+
+  // Each notify service ref has its own circuit breaker and bulkhead, from the shared notify config
+  private <T> CompletableFuture<T> guard(
+      String notifyServiceRef, Supplier<CompletableFuture<T>> send) {
+    return dependencyGuard.callAsync(NOTIFY_DEPENDENCY_PREFIX + notifyServiceRef, "notify", send);
+  }
+
+  private <T> CompletableFuture<T> recordOutcome(
+      String notifyServiceRef, CompletableFuture<T> response) {
+    return response.whenComplete(
+        (result, throwable) -> {
+          if (throwable == null) {
+            notifyRateLimiter.recordSuccess(notifyServiceRef);
+          } else if (unwrap(throwable) instanceof NotificationClientException e
+              && e.getHttpResult() == RATE_LIMIT_ERROR_HTTP_STATUS) {
+            notifyRateLimiter.recordRateLimited(notifyServiceRef);
+          }
+        });
+  }
+
+  private static <T> T await(CompletableFuture<T> response) throws NotificationClientException {
+    try {
+      return response.join();
+    } catch (CompletionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof NotificationClientException notificationClientException) {
+        throw notificationClientException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return throwable.getCause();
+    }
+    return throwable;
+  }
+}
@@ -0,0 +1,142 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.utils.EventCodec;
+import uk.gov.service.notify.Authentication;
+import uk.gov.service.notify.NotificationClient;
+import uk.gov.service.notify.NotificationClientException;
+import uk.gov.service.notify.SendEmailResponse;
+import uk.gov.service.notify.SendSmsResponse;
+
+/**
+ * Talks to the Gov Notify REST API through one shared JDK HTTP client, which pools and keeps alive
+ * its connections and uses HTTP/2 where Notify offers it. The credentials and base URL for each
+ * notify service ref come from its NotificationClient in the NotifyServiceRefMapping. The JDK
+ * client only reads its idle connection timeout from the jdk.httpclient.keepalive.timeout system
+ * property, so that is set as a JVM option in the Dockerfile.
+ */
+@Component
+@ConditionalOnProperty(name = "notifytransport.type", havingValue = "async")
+public class HttpNotifyTransport implements NotifyTransport {
+  private static final String USER_AGENT = "ssdc-rm-notify-service";
+
+  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final NotifyTransportProperties notifyTransportProperties;
+  private final HttpClient httpClient;
+  private final Authentication authentication = new Authentication();
+  private final Map<String, InFlightRequestLimiter> inFlightRequestLimiters =
+      new ConcurrentHashMap<>();
+
+  public HttpNotifyTransport(
+      NotifyServiceRefMapping notifyServiceRefMapping,
+      NotifyTransportProperties notifyTransportProperties) {
+    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.notifyTransportProperties = notifyTransportProperties;
+
+    this.httpClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(notifyTransportProperties.getConnectTimeout())
+            .build();
+  }
+
+  @Override
+  public CompletableFuture<SendSmsResponse> sendSms(
+      String notifyServiceRef,
+      String templateId,
+      String phoneNumber,
+      Map<String, String> personalisation,
+      String reference) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("phone_number", phoneNumber);
+    body.put("template_id", templateId);
+    body.put("personalisation", personalisation);
+    if (reference != null) {
+      body.put("reference", reference);
+    }
+    return post(notifyServiceRef, "/v2/notifications/sms", body).thenApply(SendSmsResponse::new);
+  }
+
+  @Override
+  public CompletableFuture<SendEmailResponse> sendEmail(
+      String notifyServiceRef,
+      String templateId,
+      String emailAddress,
+      Map<String, String> personalisation,
+      String reference) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("email_address", emailAddress);
+    body.put("template_id", templateId);
+    body.put("personalisation", personalisation);
+    if (reference != null) {
+      body.put("reference", reference);
+    }
+    return post(notifyServiceRef, "/v2/notifications/email", body)
+        .thenApply(SendEmailResponse::new);
+  }
+
+  private CompletableFuture<String> post(
+      String notifyServiceRef, String path, Map<String, Object> body) {
+    NotificationClient notificationClient =
+        notifyServiceRefMapping.getNotifyClient(notifyServiceRef);
+
+    HttpRequest request;
+    try {
+      request =
+          HttpRequest.newBuilder(URI.create(notificationClient.getBaseUrl() + path))
+              .timeout(notifyTransportProperties.getRequestTimeout())
+              .header("Content-Type", "application/json")
+              .header(
+                  "Authorization",
+                  "Bearer "
+                      + authentication.create(
+                          notificationClient.getServiceId(), notificationClient.getApiKey()))
+              .header("User-Agent", USER_AGENT)
+              .POST(HttpRequest.BodyPublishers.ofByteArray(EventCodec.writeValueAsBytes(body)))
+              .build();
+    } catch (JsonProcessingException e) {
+      return CompletableFuture.failedFuture(new NotificationClientException(e));
+    }
+
+    InFlightRequestLimiter inFlightRequestLimiter =
+        inFlightRequestLimiters.computeIfAbsent(
+            notifyServiceRef,
+            ref ->
+                new InFlightRequestLimiter(
+                    notifyTransportProperties.getMaxConcurrentRequests(ref)));
+
+    return inFlightRequestLimiter.submit(
+        () ->
+            httpClient
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle(
+                    (response, throwable) -> {
+                      if (throwable != null) {
+                        Throwable cause =
+                            throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause()
+                                : throwable;
+                        throw new CompletionException(
+                            new NotificationClientException(
+                                "Error sending request to Gov Notify", cause));
+                      }
+                      if (response.statusCode() >= 300) {
+                        throw new CompletionException(
+                            new NotifyHttpException(response.statusCode(), response.body()));
+                      }
+                      return response.body();
+                    }));
+  }
+}
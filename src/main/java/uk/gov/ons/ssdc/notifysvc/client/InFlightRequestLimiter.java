@@ -0,0 +1,60 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many requests are in flight at once without blocking the caller. Requests over the cap
+ * are queued and started, in order, as earlier ones complete.
+ */
+class InFlightRequestLimiter {
+  private final Semaphore permits;
+  private final Queue<Runnable> waitingRequests = new ConcurrentLinkedQueue<>();
+
+  InFlightRequestLimiter(int maxInFlightRequests) {
+    this.permits = new Semaphore(maxInFlightRequests);
+  }
+
+  <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    waitingRequests.add(() -> start(request, result));
+    startWaitingRequests();
+    return result;
+  }
+
+  private <T> void start(Supplier<CompletableFuture<T>> request, CompletableFuture<T> result) {
+    CompletableFuture<T> inFlight;
+    try {
+      inFlight = request.get();
+    } catch (RuntimeException e) {
+      inFlight = CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<T> unused =
+        inFlight.whenComplete(
+            (value, throwable) -> {
+              permits.release();
+              startWaitingRequests();
+              if (throwable != null) {
+                result.completeExceptionally(throwable);
+              } else {
+                result.complete(value);
+              }
+            });
+  }
+
+  private void startWaitingRequests() {
+    // Every submit and every completion runs this, so a queued request can't be left stranded
+    while (!waitingRequests.isEmpty() && permits.tryAcquire()) {
+      Runnable waitingRequest = waitingRequests.poll();
+      if (waitingRequest == null) {
+        permits.release();
+      } else {
+        waitingRequest.run();
+      }
+    }
+  }
+}
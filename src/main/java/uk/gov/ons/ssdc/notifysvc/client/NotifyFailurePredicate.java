@@ -0,0 +1,30 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
+import uk.gov.service.notify.NotificationClientException;
+
+/**
+ * Only server errors and failures to get any response count against the Gov Notify circuit
+ * breakers. Rate limiting is handled by the adaptive rate limiter and other 4xx errors are bad
+ * requests.
+ */
+public class NotifyFailurePredicate implements Predicate<Throwable> {
+
+  @Override
+  public boolean test(Throwable throwable) {
+    Throwable cause =
+        throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+    if (cause instanceof NotifyRateLimitExceededException) {
+      return false;
+    }
+    if (cause instanceof NotificationClientException notificationClientException) {
+      int httpResult = notificationClientException.getHttpResult();
+      return httpResult >= 500 || httpResult < 400;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,18 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import uk.gov.service.notify.NotificationClientException;
+
+/** An error response from Gov Notify, exposing its HTTP status like the Notify client does. */
+public class NotifyHttpException extends NotificationClientException {
+  private final int httpResult;
+
+  public NotifyHttpException(int httpResult, String responseBody) {
+    super("Status code: " + httpResult + " " + responseBody);
+    this.httpResult = httpResult;
+  }
+
+  @Override
+  public int getHttpResult() {
+    return httpResult;
+  }
+}
@@ -0,0 +1,27 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import uk.gov.service.notify.SendEmailResponse;
+import uk.gov.service.notify.SendSmsResponse;
+
+/**
+ * Sends notifications to the Gov Notify REST API for a notify service ref. Failures complete the
+ * future exceptionally with a NotificationClientException carrying the HTTP status.
+ */
+public interface NotifyTransport {
+
+  CompletableFuture<SendSmsResponse> sendSms(
+      String notifyServiceRef,
+      String templateId,
+      String phoneNumber,
+      Map<String, String> personalisation,
+      String reference);
+
+  CompletableFuture<SendEmailResponse> sendEmail(
+      String notifyServiceRef,
+      String templateId,
+      String emailAddress,
+      Map<String, String> personalisation,
+      String reference);
+}
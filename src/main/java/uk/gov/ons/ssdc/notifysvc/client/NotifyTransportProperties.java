@@ -0,0 +1,32 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifytransport")
+public class NotifyTransportProperties {
+  private String type;
+  private Duration connectTimeout;
+  private Duration requestTimeout;
+  private int defaultMaxConcurrentRequests;
+  private Map<String, ServiceRef> serviceRefs = new HashMap<>();
+
+  public int getMaxConcurrentRequests(String notifyServiceRef) {
+    ServiceRef serviceRef = serviceRefs.get(notifyServiceRef);
+    if (serviceRef != null && serviceRef.getMaxConcurrentRequests() > 0) {
+      return serviceRef.getMaxConcurrentRequests();
+    }
+    return defaultMaxConcurrentRequests;
+  }
+
+  @Data
+  public static class ServiceRef {
+    private int maxConcurrentRequests;
+  }
+}
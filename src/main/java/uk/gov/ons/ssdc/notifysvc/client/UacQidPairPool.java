@@ -0,0 +1,203 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
+
+@Component
+public class UacQidPairPool {
+  private static final Logger log = LoggerFactory.getLogger(UacQidPairPool.class);
+
+  private final UacQidServiceClient uacQidServiceClient;
+  private final UacQidPoolProperties uacQidPoolProperties;
+  private final Executor refillExecutor;
+  private final Executor fetchExecutor;
+  private final LongSupplier nanoClock;
+  private final BlockingQueue<PooledUacQidPair> pool;
+  private final AtomicBoolean refilling = new AtomicBoolean();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter expired;
+
+  @Autowired
+  public UacQidPairPool(
+      UacQidServiceClient uacQidServiceClient,
+      UacQidPoolProperties uacQidPoolProperties,
+      MeterRegistry meterRegistry) {
+    this(
+        uacQidServiceClient,
+        uacQidPoolProperties,
+        meterRegistry,
+        Executors.newSingleThreadExecutor(daemonThreads("uac-qid-pool-refill")),
+        Executors.newFixedThreadPool(
+            Math.max(uacQidPoolProperties.getRefillConcurrency(), 1),
+            daemonThreads("uac-qid-pool-fetch")),
+        System::nanoTime);
+  }
+
+  UacQidPairPool(
+      UacQidServiceClient uacQidServiceClient,
+      UacQidPoolProperties uacQidPoolProperties,
+      MeterRegistry meterRegistry,
+      Executor refillExecutor,
+      Executor fetchExecutor,
+      LongSupplier nanoClock) {
+    this.uacQidServiceClient = uacQidServiceClient;
+    this.uacQidPoolProperties = uacQidPoolProperties;
+    this.refillExecutor = refillExecutor;
+    this.fetchExecutor = fetchExecutor;
+    this.nanoClock = nanoClock;
+    this.pool = new LinkedBlockingQueue<>(Math.max(uacQidPoolProperties.getCapacity(), 1));
+
+    hits =
+        Counter.builder("uacqid.pool.requests")
+            .description("UAC/QID pairs requested from the pool")
+            .tag("result", "hit")
+            .register(meterRegistry);
+    misses =
+        Counter.builder("uacqid.pool.requests")
+            .description("UAC/QID pairs requested from the pool")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    expired =
+        Counter.builder("uacqid.pool.expired")
+            .description("UAC/QID pairs discarded unused for being older than the max age")
+            .register(meterRegistry);
+    Gauge.builder("uacqid.pool.size", pool, BlockingQueue::size)
+        .description("UAC/QID pairs currently held in the pool")
+        .register(meterRegistry);
+  }
+
+  public UacQidCreatedPayloadDTO getUacQidPair() {
+    if (!uacQidPoolProperties.isEnabled()) {
+      return uacQidServiceClient.generateUacQid();
+    }
+
+    // Pairs past the max age are dropped as they are reached, there's no timer sweeping the pool
+    PooledUacQidPair pooledPair;
+    while ((pooledPair = pool.poll()) != null) {
+      if (isExpired(pooledPair)) {
+        expired.increment();
+        continue;
+      }
+      hits.increment();
+      if (pool.size() < uacQidPoolProperties.getLowWatermark()) {
+        triggerRefill();
+      }
+      return pooledPair.uacQidPair();
+    }
+
+    misses.increment();
+    triggerRefill();
+    return uacQidServiceClient.generateUacQid();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (refillExecutor instanceof ExecutorService executorService) {
+      executorService.shutdownNow();
+    }
+    if (fetchExecutor instanceof ExecutorService executorService) {
+      executorService.shutdownNow();
+    }
+  }
+
+  int size() {
+    return pool.size();
+  }
+
+  private void triggerRefill() {
+    if (refilling.compareAndSet(false, true)) {
+      refillExecutor.execute(
+          () -> {
+            try {
+              refill();
+            } finally {
+              refilling.set(false);
+            }
+          });
+    }
+  }
+
+  private void refill() {
+    int required = uacQidPoolProperties.getCapacity() - pool.size();
+    if (required <= 0) {
+      return;
+    }
+
+    try {
+      if (uacQidPoolProperties.getBulkFetchSize() > 1) {
+        while (required > 0) {
+          List<UacQidCreatedPayloadDTO> uacQidPairs =
+              uacQidServiceClient.generateUacQids(
+                  Math.min(required, uacQidPoolProperties.getBulkFetchSize()));
+          if (uacQidPairs.isEmpty()) {
+            break;
+          }
+          long fetchedAt = nanoClock.getAsLong();
+          for (UacQidCreatedPayloadDTO uacQidPair : uacQidPairs) {
+            pool.offer(new PooledUacQidPair(uacQidPair, fetchedAt));
+          }
+          required -= uacQidPairs.size();
+        }
+      } else {
+        // Without bulk fetching, pairs are fetched singly but several at a time
+        List<CompletableFuture<UacQidCreatedPayloadDTO>> fetches = new ArrayList<>(required);
+        for (int i = 0; i < required; i++) {
+          fetches.add(
+              CompletableFuture.supplyAsync(uacQidServiceClient::generateUacQid, fetchExecutor));
+        }
+        for (CompletableFuture<UacQidCreatedPayloadDTO> fetch : fetches) {
+          offerFetched(fetch);
+        }
+      }
+
+      log.atDebug().setMessage("Refilled UAC/QID pair pool").addKeyValue("size", pool.size()).log();
+    } catch (RuntimeException e) {
+      // Requests are served directly from the UAC service until the next refill succeeds
+      log.atWarn().setMessage("Failed to refill UAC/QID pair pool").setCause(e).log();
+    }
+  }
+
+  private void offerFetched(CompletableFuture<UacQidCreatedPayloadDTO> fetch) {
+    try {
+      pool.offer(new PooledUacQidPair(fetch.join(), nanoClock.getAsLong()));
+    } catch (CompletionException e) {
+      // One failed fetch leaves a gap for the next refill, it doesn't lose the other pairs
+      log.atWarn().setMessage("Failed to fetch UAC/QID pair for pool").setCause(e.getCause()).log();
+    }
+  }
+
+  private boolean isExpired(PooledUacQidPair pooledPair) {
+    return nanoClock.getAsLong() - pooledPair.fetchedAt()
+        > uacQidPoolProperties.getMaxAge().toNanos();
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private record PooledUacQidPair(UacQidCreatedPayloadDTO uacQidPair, long fetchedAt) {}
+}
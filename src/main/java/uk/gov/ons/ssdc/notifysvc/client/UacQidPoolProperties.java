@@ -0,0 +1,18 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "uacqidpool")
+public class UacQidPoolProperties {
+  private boolean enabled;
+  private int capacity;
+  private int lowWatermark;
+  private Duration maxAge;
+  private int bulkFetchSize;
+  private int refillConcurrency;
+}
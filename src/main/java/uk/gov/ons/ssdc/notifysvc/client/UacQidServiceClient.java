@@ -1,7 +1,9 @@
 package uk.gov.ons.ssdc.notifysvc.client;
 
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
@@ -25,20 +27,59 @@ public class UacQidServiceClient {
 
   private static final Logger log = LoggerFactory.getLogger(UacQidServiceClient.class);
 
+  private static final String DEPENDENCY_NAME = "uacservice";
+
+  private final RestTemplate restTemplate;
+  private final DependencyGuard dependencyGuard;
+
+  public UacQidServiceClient(
+      @Qualifier("uacServiceRestTemplate") RestTemplate restTemplate,
+      DependencyGuard dependencyGuard) {
+    this.restTemplate = restTemplate;
+    this.dependencyGuard = dependencyGuard;
+  }
+
   public UacQidCreatedPayloadDTO generateUacQid() {
-    log.atError()
+    log.atDebug()
         .setMessage("HTTP call to generate a UAC and QID")
         .addKeyValue("method", "generateUacQid")
         .log();
 
-    RestTemplate restTemplate = new RestTemplate();
     UriComponents uriComponents = createUriComponents();
     ResponseEntity<UacQidCreatedPayloadDTO> responseEntity =
-        restTemplate.exchange(
-            uriComponents.toUri(), HttpMethod.GET, null, UacQidCreatedPayloadDTO.class);
+        dependencyGuard.call(
+            DEPENDENCY_NAME,
+            () ->
+                restTemplate.exchange(
+                    uriComponents.toUri(), HttpMethod.GET, null, UacQidCreatedPayloadDTO.class));
     return responseEntity.getBody();
   }
 
+  public List<UacQidCreatedPayloadDTO> generateUacQids(int count) {
+    log.atDebug()
+        .setMessage("HTTP call to generate UACs and QIDs")
+        .addKeyValue("method", "generateUacQids")
+        .addKeyValue("count", count)
+        .log();
+
+    UriComponents uriComponents =
+        UriComponentsBuilder.newInstance()
+            .scheme(scheme)
+            .host(host)
+            .port(port)
+            .queryParam("count", count)
+            .build()
+            .encode();
+    ResponseEntity<UacQidCreatedPayloadDTO[]> responseEntity =
+        dependencyGuard.call(
+            DEPENDENCY_NAME,
+            () ->
+                restTemplate.exchange(
+                    uriComponents.toUri(), HttpMethod.GET, null, UacQidCreatedPayloadDTO[].class));
+    UacQidCreatedPayloadDTO[] uacQidPairs = responseEntity.getBody();
+    return uacQidPairs == null ? List.of() : List.of(uacQidPairs);
+  }
+
   private UriComponents createUriComponents() {
     return UriComponentsBuilder.newInstance().scheme(scheme).host(host).port(port).build().encode();
   }
@@ -3,9 +3,13 @@ package uk.gov.ons.ssdc.notifysvc.config;
 import jakarta.annotation.PostConstruct;
 import java.util.TimeZone;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableCaching
+@EnableScheduling
 public class AppConfig {
   @Value("${logging.profile}")
   private String loggingProfile;
@@ -3,19 +3,40 @@ package uk.gov.ons.ssdc.notifysvc.config;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import com.google.protobuf.ByteString;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.system.JavaVersion;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.ExecutorChannel;
 import org.springframework.integration.handler.advice.RequestHandlerRetryAdvice;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecoverer;
+import uk.gov.ons.ssdc.notifysvc.messaging.PubSubAckInterceptor;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
 
 @Configuration
 public class MessageConsumerConfig {
   private final ManagedMessageRecoverer managedMessageRecoverer;
   private final PubSubTemplate pubSubTemplate;
+  private final Environment environment;
 
   @Value("${queueconfig.sms-request-subscription}")
   private String smsRequestSubscription;
@@ -29,30 +50,60 @@ public class MessageConsumerConfig {
   @Value("${queueconfig.email-request-enriched-subscription}")
   private String emailRequestEnrichedSubscription;
 
+  @Value("${queueconfig.sms-request-handler-threads}")
+  private int smsRequestHandlerThreads;
+
+  @Value("${queueconfig.sms-request-enriched-handler-threads}")
+  private int smsRequestEnrichedHandlerThreads;
+
+  @Value("${queueconfig.email-request-handler-threads}")
+  private int emailRequestHandlerThreads;
+
+  @Value("${queueconfig.email-request-enriched-handler-threads}")
+  private int emailRequestEnrichedHandlerThreads;
+
+  @Value("${queueconfig.handler-queue-capacity}")
+  private int handlerQueueCapacity;
+
+  private final List<Runnable> handlerExecutorShutdowns = new CopyOnWriteArrayList<>();
+
   public MessageConsumerConfig(
-      ManagedMessageRecoverer managedMessageRecoverer, PubSubTemplate pubSubTemplate) {
+      ManagedMessageRecoverer managedMessageRecoverer,
+      PubSubTemplate pubSubTemplate,
+      Environment environment) {
     this.managedMessageRecoverer = managedMessageRecoverer;
     this.pubSubTemplate = pubSubTemplate;
+    this.environment = environment;
+
+    // Spring quietly ignores the setting before Java 21, which would leave the handlers on platform
+    // threads sized for virtual ones
+    if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+        && JavaVersion.getJavaVersion().isOlderThan(JavaVersion.TWENTY_ONE)) {
+      throw new IllegalStateException(
+          "spring.threads.virtual.enabled is set but virtual threads need Java 21 or later, running on"
+              + " Java "
+              + System.getProperty("java.version"));
+    }
   }
 
   @Bean
   public MessageChannel smsRequestInputChannel() {
-    return new DirectChannel();
+    return makeChannel("smsRequest", smsRequestHandlerThreads);
   }
 
   @Bean
   public MessageChannel smsRequestEnrichedInputChannel() {
-    return new DirectChannel();
+    return makeChannel("smsRequestEnriched", smsRequestEnrichedHandlerThreads);
   }
 
   @Bean
   public MessageChannel emailRequestInputChannel() {
-    return new DirectChannel();
+    return makeChannel("emailRequest", emailRequestHandlerThreads);
   }
 
   @Bean
   public MessageChannel emailRequestEnrichedInputChannel() {
-    return new DirectChannel();
+    return makeChannel("emailRequestEnriched", emailRequestEnrichedHandlerThreads);
   }
 
   @Bean
@@ -79,17 +130,86 @@ public class MessageConsumerConfig {
     return makeAdapter(channel, emailRequestEnrichedSubscription);
   }
 
+  private MessageChannel makeChannel(String channelName, int handlerThreads) {
+    if (handlerThreads <= 0) {
+      return new DirectChannel();
+    }
+
+    TaskExecutor executor =
+        Threading.VIRTUAL.isActive(environment)
+            ? makeVirtualThreadExecutor(channelName, handlerThreads)
+            : makePlatformThreadExecutor(channelName, handlerThreads);
+
+    // Handler failures have already been reported by the ManagedMessageRecoverer and are nacked by
+    // the PubSubAckInterceptor, so there is nothing left for the executor's error handler to do
+    ExecutorChannel channel =
+        new ExecutorChannel(new ErrorHandlingTaskExecutor(executor, throwable -> {}));
+    channel.addInterceptor(new PubSubAckInterceptor());
+    return channel;
+  }
+
+  private TaskExecutor makePlatformThreadExecutor(String channelName, int handlerThreads) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix(channelName + "-handler-");
+    executor.setCorePoolSize(handlerThreads);
+    executor.setMaxPoolSize(handlerThreads);
+    executor.setQueueCapacity(handlerQueueCapacity);
+    // Once the queue is full the subscriber thread handles the message itself, pushing back on the
+    // Pub/Sub client rather than buffering without limit
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    executor.initialize();
+    handlerExecutorShutdowns.add(executor::shutdown);
+    return executor;
+  }
+
+  private TaskExecutor makeVirtualThreadExecutor(String channelName, int handlerThreads) {
+    // A new virtual thread per message, with the concurrency limit acting as a semaphore which
+    // blocks the subscriber thread until a permit is released
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(channelName + "-handler-");
+    executor.setVirtualThreads(true);
+    executor.setConcurrencyLimit(handlerThreads);
+    executor.setTaskTerminationTimeout(30000);
+    handlerExecutorShutdowns.add(executor::close);
+    return executor;
+  }
+
   private PubSubInboundChannelAdapter makeAdapter(MessageChannel channel, String subscriptionName) {
     PubSubInboundChannelAdapter adapter =
         new PubSubInboundChannelAdapter(pubSubTemplate, subscriptionName);
     adapter.setOutputChannel(channel);
-    adapter.setAckMode(AckMode.AUTO);
+    adapter.setPayloadType(ByteString.class);
+    // Messages handed off to an executor are acked by the PubSubAckInterceptor once handled
+    adapter.setAckMode(channel instanceof ExecutorChannel ? AckMode.MANUAL : AckMode.AUTO);
     return adapter;
   }
 
+  @PreDestroy
+  public void shutdownHandlerExecutors() {
+    handlerExecutorShutdowns.forEach(Runnable::run);
+  }
+
   @Bean
   public RequestHandlerRetryAdvice retryAdvice() {
+    // Calls rejected by an open circuit breaker, a full bulkhead or a fully reserved rate limit are
+    // not retried, so the message goes straight to the recoverer and is nacked
+    RetryTemplate retryTemplate = new RetryTemplate();
+    retryTemplate.setRetryPolicy(
+        new SimpleRetryPolicy(
+            SimpleRetryPolicy.DEFAULT_MAX_ATTEMPTS,
+            Map.of(
+                CallNotPermittedException.class,
+                false,
+                BulkheadFullException.class,
+                false,
+                NotifyRateLimitExceededException.class,
+                false),
+            true,
+            true));
+
     RequestHandlerRetryAdvice requestHandlerRetryAdvice = new RequestHandlerRetryAdvice();
+    requestHandlerRetryAdvice.setRetryTemplate(retryTemplate);
     requestHandlerRetryAdvice.setRecoveryCallback(managedMessageRecoverer);
     return requestHandlerRetryAdvice;
   }
@@ -1,7 +1,6 @@
 package uk.gov.ons.ssdc.notifysvc.config;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -10,7 +9,7 @@ import java.util.Map;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import uk.gov.ons.ssdc.notifysvc.utils.ObjectMapperFactory;
+import uk.gov.ons.ssdc.notifysvc.utils.EventCodec;
 
 @Configuration
 public class NotifyConfiguration {
@@ -18,14 +17,12 @@ public class NotifyConfiguration {
   @Value("${notifyserviceconfigfile}")
   private String configFile;
 
-  public static final ObjectMapper OBJECT_MAPPER = ObjectMapperFactory.objectMapper();
-
   @Bean
   public NotifyServiceRefMapping notifyServiceRefMapping() {
     Map<String, Map<String, String>> rawJsonConfig;
 
     try (InputStream configFileStream = new FileInputStream(configFile)) {
-      rawJsonConfig = OBJECT_MAPPER.readValue(configFileStream, Map.class);
+      rawJsonConfig = EventCodec.readValue(configFileStream, Map.class);
     } catch (JsonProcessingException | FileNotFoundException e) {
       throw new RuntimeException(e);
     } catch (IOException e) {
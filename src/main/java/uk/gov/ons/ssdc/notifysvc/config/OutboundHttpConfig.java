@@ -0,0 +1,54 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class OutboundHttpConfig {
+  private final RestTemplateBuilder restTemplateBuilder;
+  private final OutboundHttpProperties outboundHttpProperties;
+
+  public OutboundHttpConfig(
+      RestTemplateBuilder restTemplateBuilder, OutboundHttpProperties outboundHttpProperties) {
+    this.restTemplateBuilder = restTemplateBuilder;
+    this.outboundHttpProperties = outboundHttpProperties;
+  }
+
+  @Bean
+  public RestTemplate uacServiceRestTemplate() {
+    return buildRestTemplate("uacservice");
+  }
+
+  @Bean
+  public RestTemplate exceptionManagerRestTemplate() {
+    return buildRestTemplate("exceptionmanager");
+  }
+
+  // Each target has its own connection pool, so a slow host cannot starve the others of
+  // connections. The builder also instruments every call with the http.client.requests timer
+  private RestTemplate buildRestTemplate(String targetName) {
+    OutboundHttpProperties.Target target = outboundHttpProperties.getTarget(targetName);
+    return restTemplateBuilder
+        .requestFactoryBuilder(
+            ClientHttpRequestFactoryBuilder.httpComponents()
+                .withConnectionManagerCustomizer(
+                    connectionManager ->
+                        connectionManager
+                            .setMaxConnTotal(target.getMaxConnections())
+                            .setMaxConnPerRoute(target.getMaxConnections()))
+                .withHttpClientCustomizer(
+                    httpClient ->
+                        httpClient
+                            .evictExpiredConnections()
+                            .evictIdleConnections(
+                                TimeValue.ofMilliseconds(
+                                    outboundHttpProperties.getIdleTimeout().toMillis()))))
+        .connectTimeout(target.getConnectTimeout())
+        .readTimeout(target.getReadTimeout())
+        .build();
+  }
+}
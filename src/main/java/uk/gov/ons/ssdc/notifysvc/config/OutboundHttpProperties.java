@@ -0,0 +1,31 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "outboundhttp")
+public class OutboundHttpProperties {
+  private Duration idleTimeout;
+  private Map<String, Target> targets = new HashMap<>();
+
+  public Target getTarget(String name) {
+    Target target = targets.get(name);
+    if (target == null) {
+      throw new IllegalStateException("No outbound HTTP settings configured for target: " + name);
+    }
+    return target;
+  }
+
+  @Data
+  public static class Target {
+    private Duration connectTimeout;
+    private Duration readTimeout;
+    private int maxConnections;
+  }
+}
@@ -0,0 +1,32 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PubSubPublisherConfig {
+
+  @Bean
+  public PublisherCustomizer topicBatchingCustomizer(
+      PublisherBatchingProperties publisherBatchingProperties) {
+    return (publisherBuilder, topic) -> {
+      // Publishers may be created from a short topic name or a fully qualified topic path
+      String topicName = topic.substring(topic.lastIndexOf('/') + 1);
+      PublisherBatchingProperties.Batching batching =
+          publisherBatchingProperties.getTopics().get(topicName);
+      if (batching == null) {
+        return;
+      }
+
+      publisherBuilder.setBatchingSettings(
+          BatchingSettings.newBuilder()
+              .setElementCountThreshold(batching.getElementCountThreshold())
+              .setRequestByteThreshold(batching.getRequestByteThreshold())
+              .setDelayThreshold(
+                  org.threeten.bp.Duration.ofMillis(batching.getDelayThreshold().toMillis()))
+              .build());
+    };
+  }
+}
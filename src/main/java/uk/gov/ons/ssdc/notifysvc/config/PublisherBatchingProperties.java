@@ -0,0 +1,22 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "publisherbatching")
+public class PublisherBatchingProperties {
+  private Map<String, Batching> topics = new HashMap<>();
+
+  @Data
+  public static class Batching {
+    private long elementCountThreshold;
+    private long requestByteThreshold;
+    private Duration delayThreshold;
+  }
+}
@@ -0,0 +1,29 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.gov.ons.ssdc.notifysvc.endpoint.ConcurrencyLimitInterceptor;
+
+// On virtual threads Tomcat no longer bounds how many requests run at once, so the fulfilment
+// endpoints are limited by a semaphore instead
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class WebConfig implements WebMvcConfigurer {
+
+  @Value("${fulfilmentconfig.max-concurrent-requests}")
+  private int maxConcurrentRequests;
+
+  @Value("${fulfilmentconfig.max-wait-millis}")
+  private long maxWaitMillis;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry
+        .addInterceptor(new ConcurrencyLimitInterceptor(maxConcurrentRequests, maxWaitMillis))
+        .addPathPatterns("/sms-fulfilment", "/email-fulfilment");
+  }
+}
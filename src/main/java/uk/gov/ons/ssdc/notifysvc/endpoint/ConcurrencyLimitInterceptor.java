@@ -0,0 +1,53 @@
+package uk.gov.ons.ssdc.notifysvc.endpoint;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+  private static final String PERMIT_ATTRIBUTE =
+      ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+  private final Semaphore semaphore;
+  private final long maxWaitMillis;
+
+  public ConcurrencyLimitInterceptor(int maxConcurrentRequests, long maxWaitMillis) {
+    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    try {
+      if (!semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+        throw new ResponseStatusException(
+            HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent requests, try again later");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE, "Interrupted whilst waiting to handle request", e);
+    }
+
+    request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+      request.removeAttribute(PERMIT_ATTRIBUTE);
+      semaphore.release();
+    }
+  }
+
+  public int getAvailablePermits() {
+    return semaphore.availablePermits();
+  }
+}
@@ -1,7 +1,7 @@
 package uk.gov.ons.ssdc.notifysvc.endpoint;
 
-import static uk.gov.ons.ssdc.notifysvc.utils.PersonalisationTemplateHelper.buildPersonalisationFromTemplate;
-
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -21,10 +21,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
-import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.EmailFulfilment;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.EmailFulfilmentEmptyResponseSuccess;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.EmailFulfilmentResponse;
@@ -33,11 +31,13 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.api.EmailFulfilmentResponseSuccess;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.EmailRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
-import uk.gov.service.notify.NotificationClient;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.service.notify.NotificationClientException;
 
 @RestController
@@ -45,22 +45,23 @@ import uk.gov.service.notify.NotificationClientException;
 public class EmailFulfilmentEndpoint {
 
   private final EmailRequestService emailRequestService;
-  private final CaseRepository caseRepository;
+  private final CaseDataLookup caseDataLookup;
   private final EmailTemplateRepository emailTemplateRepository;
-  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final GovNotifyClient govNotifyClient;
 
   private static final Logger log = LoggerFactory.getLogger(EmailFulfilmentEndpoint.class);
+  private static final String[] NO_TEMPLATE = new String[0];
 
   @Autowired
   public EmailFulfilmentEndpoint(
       EmailRequestService emailRequestService,
-      CaseRepository caseRepository,
+      CaseDataLookup caseDataLookup,
       EmailTemplateRepository emailTemplateRepository,
-      NotifyServiceRefMapping notifyServiceRefMapping) {
+      GovNotifyClient govNotifyClient) {
     this.emailRequestService = emailRequestService;
-    this.caseRepository = caseRepository;
+    this.caseDataLookup = caseDataLookup;
     this.emailTemplateRepository = emailTemplateRepository;
-    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.govNotifyClient = govNotifyClient;
   }
 
   @Operation(description = "Email Fulfilment Request")
@@ -91,13 +92,22 @@ public class EmailFulfilmentEndpoint {
   @PostMapping
   public ResponseEntity<EmailFulfilmentResponse> emailFulfilment(@RequestBody RequestDTO request) {
 
-    Case caze;
     EmailTemplate emailTemplate;
+    FulfilmentCaseFields caseFields;
     try {
-      caze = findCaseById(request.getPayload().getEmailFulfilment().getCaseId());
+      // Templates and the survey allow list are held in memory, leaving one query for the case
+      Optional<EmailTemplate> optionalEmailTemplate =
+          emailTemplateRepository.findById(request.getPayload().getEmailFulfilment().getPackCode());
+      caseFields =
+          findCaseById(
+              request.getPayload().getEmailFulfilment().getCaseId(),
+              optionalEmailTemplate.map(EmailTemplate::getTemplate).orElse(NO_TEMPLATE));
       emailTemplate =
-          findEmailTemplateByPackCode(request.getPayload().getEmailFulfilment().getPackCode());
-      validateRequestAndFetchEmailTemplate(request, caze, emailTemplate);
+          optionalEmailTemplate.orElseThrow(
+              () ->
+                  new ResponseStatusException(
+                      HttpStatus.BAD_REQUEST, "A template does not exist with this pack code"));
+      validateRequestAndFetchEmailTemplate(request, caseFields.getSurveyId(), emailTemplate);
     } catch (ResponseStatusException responseStatusException) {
       return new ResponseEntity<>(
           new EmailFulfilmentResponseError(responseStatusException.getReason()),
@@ -110,15 +120,21 @@ public class EmailFulfilmentEndpoint {
     Map<String, String> emailPersonalisation =
         buildPersonalisationTemplateValues(
             emailTemplate,
-            caze,
+            caseFields,
             newUacQidPair,
             request.getPayload().getEmailFulfilment().getPersonalisation());
     String notifyServiceRef = emailTemplate.getNotifyServiceRef();
 
-    // NOTE: Here we are sending the enriched event BEFORE we make the call to send the email. This
-    // is to be certain that the record of the UAC link is not lost. If we were to send the email
-    // first then the event publish failed it would leave the requester with a broken UAC we would
-    // be unable to fix
+    sendEmail(
+        request.getPayload().getEmailFulfilment().getEmail(),
+        emailTemplate,
+        emailPersonalisation,
+        request.getHeader().getCorrelationId().toString(),
+        notifyServiceRef);
+
+    // NOTE: The enriched event, which records the UAC link, is only sent once Gov Notify has
+    // accepted the email, so a rejected or failed send never records a UAC the requester didn't
+    // get. If the publish then fails the request errors and the requester has to ask again
     emailRequestService.buildAndSendEmailConfirmation(
         request.getPayload().getEmailFulfilment().getCaseId(),
         request.getPayload().getEmailFulfilment().getPackCode(),
@@ -131,31 +147,21 @@ public class EmailFulfilmentEndpoint {
         request.getHeader().getCorrelationId(),
         request.getHeader().getOriginatingUser());
 
-    sendEmail(
-        request.getPayload().getEmailFulfilment().getEmail(),
-        emailTemplate,
-        emailPersonalisation,
-        request.getHeader().getCorrelationId().toString(),
-        notifyServiceRef);
-
     return new ResponseEntity<>(createEmailSuccessResponse(newUacQidPair), HttpStatus.OK);
   }
 
   private Map<String, String> buildPersonalisationTemplateValues(
       EmailTemplate emailTemplate,
-      Case caze,
+      FulfilmentCaseFields caseFields,
       Optional<UacQidCreatedPayloadDTO> uacQidPair,
       Map<String, String> requestPersonalisation) {
-    if (uacQidPair.isPresent()) {
-      return buildPersonalisationFromTemplate(
-          emailTemplate.getTemplate(),
-          caze,
-          uacQidPair.get().getUac(),
-          uacQidPair.get().getQid(),
-          requestPersonalisation);
-    }
-    return buildPersonalisationFromTemplate(
-        emailTemplate.getTemplate(), caze, requestPersonalisation);
+    return PersonalisationPlan.forTemplate(emailTemplate.getTemplate())
+        .buildPersonalisation(
+            caseFields.getSample(),
+            caseFields.getSampleSensitive(),
+            uacQidPair.map(UacQidCreatedPayloadDTO::getUac).orElse(null),
+            uacQidPair.map(UacQidCreatedPayloadDTO::getQid).orElse(null),
+            requestPersonalisation);
   }
 
   private EmailFulfilmentResponse createEmailSuccessResponse(
@@ -169,10 +175,10 @@ public class EmailFulfilmentEndpoint {
   }
 
   public void validateRequestAndFetchEmailTemplate(
-      RequestDTO emailFulfilmentRequest, Case caze, EmailTemplate emailTemplate) {
+      RequestDTO emailFulfilmentRequest, UUID surveyId, EmailTemplate emailTemplate) {
     validateRequestHeader(emailFulfilmentRequest.getHeader());
     EmailFulfilment emailFulfilment = emailFulfilmentRequest.getPayload().getEmailFulfilment();
-    validateTemplateOnSurvey(emailTemplate, caze.getCollectionExercise().getSurvey());
+    validateTemplateOnSurvey(emailTemplate, surveyId);
     validateEmailAddress(emailFulfilment.getEmail());
   }
 
@@ -200,21 +206,22 @@ public class EmailFulfilmentEndpoint {
       Map<String, String> emailTemplatePersonalization,
       String reference,
       String notifyServiceRef) {
-
-    NotificationClient notificationClient =
-        notifyServiceRefMapping.getNotifyClient(notifyServiceRef);
-
     try {
       log.atError()
           .setMessage("HTTP call to send an email")
           .addKeyValue("method", "sendEmail")
           .log();
 
-      notificationClient.sendEmail(
+      govNotifyClient.sendEmail(
+          notifyServiceRef,
           emailTemplate.getNotifyTemplateId().toString(),
           emailAddress,
           emailTemplatePersonalization,
           reference);
+    } catch (NotifyRateLimitExceededException
+        | CallNotPermittedException
+        | BulkheadFullException e) {
+      throw new NotifyUnavailableException(e);
     } catch (NotificationClientException e) {
       log.atError()
           .setMessage("Error with Gov Notify when attempting to send email")
@@ -227,25 +234,16 @@ public class EmailFulfilmentEndpoint {
     }
   }
 
-  private void validateTemplateOnSurvey(EmailTemplate emailTemplate, Survey survey) {
-    if (!emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey)) {
+  private void validateTemplateOnSurvey(EmailTemplate emailTemplate, UUID surveyId) {
+    if (!emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, surveyId)) {
       throw new ResponseStatusException(
           HttpStatus.BAD_REQUEST, "The template for this pack code is not allowed on this survey");
     }
   }
 
-  public EmailTemplate findEmailTemplateByPackCode(String packCode) {
-    return emailTemplateRepository
-        .findById(packCode)
-        .orElseThrow(
-            () ->
-                new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST, "A template does not exist with this pack code"));
-  }
-
-  public Case findCaseById(UUID caseId) {
-    return caseRepository
-        .findById(caseId)
+  public FulfilmentCaseFields findCaseById(UUID caseId, String[] template) {
+    return caseDataLookup
+        .findFulfilmentCase(caseId, PersonalisationPlan.forTemplate(template))
         .orElseThrow(
             () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "The case does not exist"));
   }
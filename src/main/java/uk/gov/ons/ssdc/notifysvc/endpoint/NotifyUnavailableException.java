@@ -0,0 +1,22 @@
+package uk.gov.ons.ssdc.notifysvc.endpoint;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Gov Notify can't take the send right now, because the rate limit is fully reserved or its circuit
+// breaker or bulkhead turned the call away. The caller is told to back off and retry
+class NotifyUnavailableException extends ResponseStatusException {
+  static final long RETRY_AFTER_SECONDS = 5;
+
+  NotifyUnavailableException(RuntimeException cause) {
+    super(HttpStatus.SERVICE_UNAVAILABLE, "Gov Notify is unavailable, try again later", cause);
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+    return headers;
+  }
+}
@@ -1,7 +1,7 @@
 package uk.gov.ons.ssdc.notifysvc.endpoint;
 
-import static uk.gov.ons.ssdc.notifysvc.utils.PersonalisationTemplateHelper.buildPersonalisationFromTemplate;
-
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -21,10 +21,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
-import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.SmsFulfilment;
@@ -33,34 +31,37 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.api.SmsFulfilmentResponse;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.SmsFulfilmentResponseError;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.SmsFulfilmentResponseSuccess;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.SmsRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
-import uk.gov.service.notify.NotificationClient;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.service.notify.NotificationClientException;
 
 @RestController
 @RequestMapping(value = "/sms-fulfilment")
 public class SmsFulfilmentEndpoint {
   private static final Logger log = LoggerFactory.getLogger(SmsFulfilmentEndpoint.class);
+  private static final String[] NO_TEMPLATE = new String[0];
 
   private final SmsRequestService smsRequestService;
-  private final CaseRepository caseRepository;
+  private final CaseDataLookup caseDataLookup;
   private final SmsTemplateRepository smsTemplateRepository;
 
-  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final GovNotifyClient govNotifyClient;
 
   @Autowired
   public SmsFulfilmentEndpoint(
       SmsRequestService smsRequestService,
-      CaseRepository caseRepository,
+      CaseDataLookup caseDataLookup,
       SmsTemplateRepository smsTemplateRepository,
-      NotifyServiceRefMapping notifyServiceRefMapping) {
+      GovNotifyClient govNotifyClient) {
     this.smsRequestService = smsRequestService;
-    this.caseRepository = caseRepository;
+    this.caseDataLookup = caseDataLookup;
     this.smsTemplateRepository = smsTemplateRepository;
-    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.govNotifyClient = govNotifyClient;
   }
 
   @Operation(description = "SMS Fulfilment Request")
@@ -91,13 +92,22 @@ public class SmsFulfilmentEndpoint {
   @PostMapping
   public ResponseEntity<SmsFulfilmentResponse> smsFulfilment(@RequestBody RequestDTO request) {
 
-    Case caze;
     SmsTemplate smsTemplate;
+    FulfilmentCaseFields caseFields;
     try {
-      caze = findCaseById(request.getPayload().getSmsFulfilment().getCaseId());
+      // Templates and the survey allow list are held in memory, leaving one query for the case
+      Optional<SmsTemplate> optionalSmsTemplate =
+          smsTemplateRepository.findById(request.getPayload().getSmsFulfilment().getPackCode());
+      caseFields =
+          findCaseById(
+              request.getPayload().getSmsFulfilment().getCaseId(),
+              optionalSmsTemplate.map(SmsTemplate::getTemplate).orElse(NO_TEMPLATE));
       smsTemplate =
-          findSmsTemplateByPackCode(request.getPayload().getSmsFulfilment().getPackCode());
-      validateRequestAndFetchSmsTemplate(request, caze, smsTemplate);
+          optionalSmsTemplate.orElseThrow(
+              () ->
+                  new ResponseStatusException(
+                      HttpStatus.BAD_REQUEST, "A template does not exist with this pack code"));
+      validateRequestAndFetchSmsTemplate(request, caseFields.getSurveyId(), smsTemplate);
     } catch (ResponseStatusException responseStatusException) {
       return new ResponseEntity<>(
           new SmsFulfilmentResponseError(responseStatusException.getReason()),
@@ -110,14 +120,16 @@ public class SmsFulfilmentEndpoint {
     Map<String, String> smsPersonalisation =
         buildPersonalisationTemplateValues(
             smsTemplate,
-            caze,
+            caseFields,
             newUacQidPair,
             request.getPayload().getSmsFulfilment().getPersonalisation());
 
-    // NOTE: Here we are sending the enriched event BEFORE we make the call to send the SMS.
-    // This is to be certain that the record of the UAC link is not lost. If we were to send the SMS
-    // first then the event publish failed it would leave the requester with a broken UAC we would
-    // be unable to fix
+    sendSms(
+        request.getPayload().getSmsFulfilment().getPhoneNumber(), smsTemplate, smsPersonalisation);
+
+    // NOTE: The enriched event, which records the UAC link, is only sent once Gov Notify has
+    // accepted the SMS, so a rejected or failed send never records a UAC the requester didn't get.
+    // If the publish then fails the request errors and the requester has to ask again
     smsRequestService.buildAndSendSmsConfirmation(
         request.getPayload().getSmsFulfilment().getCaseId(),
         request.getPayload().getSmsFulfilment().getPackCode(),
@@ -130,36 +142,21 @@ public class SmsFulfilmentEndpoint {
         request.getHeader().getCorrelationId(),
         request.getHeader().getOriginatingUser());
 
-    String notifyServiceRef = smsTemplate.getNotifyServiceRef();
-    String senderId = notifyServiceRefMapping.getSenderId(notifyServiceRef);
-    NotificationClient notificationClient =
-        notifyServiceRefMapping.getNotifyClient(notifyServiceRef);
-
-    sendSms(
-        request.getPayload().getSmsFulfilment().getPhoneNumber(),
-        smsTemplate,
-        smsPersonalisation,
-        senderId,
-        notificationClient);
-
     return new ResponseEntity<>(createSmsSuccessResponse(newUacQidPair), HttpStatus.OK);
   }
 
   private Map<String, String> buildPersonalisationTemplateValues(
       SmsTemplate smsTemplate,
-      Case caze,
+      FulfilmentCaseFields caseFields,
       Optional<UacQidCreatedPayloadDTO> uacQidPair,
       Map<String, String> requestPersonalisation) {
-    if (uacQidPair.isPresent()) {
-      return buildPersonalisationFromTemplate(
-          smsTemplate.getTemplate(),
-          caze,
-          uacQidPair.get().getUac(),
-          uacQidPair.get().getQid(),
-          requestPersonalisation);
-    }
-    return buildPersonalisationFromTemplate(
-        smsTemplate.getTemplate(), caze, requestPersonalisation);
+    return PersonalisationPlan.forTemplate(smsTemplate.getTemplate())
+        .buildPersonalisation(
+            caseFields.getSample(),
+            caseFields.getSampleSensitive(),
+            uacQidPair.map(UacQidCreatedPayloadDTO::getUac).orElse(null),
+            uacQidPair.map(UacQidCreatedPayloadDTO::getQid).orElse(null),
+            requestPersonalisation);
   }
 
   private SmsFulfilmentResponse createSmsSuccessResponse(
@@ -173,10 +170,10 @@ public class SmsFulfilmentEndpoint {
   }
 
   public void validateRequestAndFetchSmsTemplate(
-      RequestDTO smsFulfilmentRequest, Case caze, SmsTemplate smsTemplate) {
+      RequestDTO smsFulfilmentRequest, UUID surveyId, SmsTemplate smsTemplate) {
     validateRequestHeader(smsFulfilmentRequest.getHeader());
     SmsFulfilment smsFulfilment = smsFulfilmentRequest.getPayload().getSmsFulfilment();
-    validateTemplateOnSurvey(smsTemplate, caze.getCollectionExercise().getSurvey());
+    validateTemplateOnSurvey(smsTemplate, surveyId);
     validatePhoneNumber(smsFulfilment.getPhoneNumber());
   }
 
@@ -197,16 +194,19 @@ public class SmsFulfilmentEndpoint {
   }
 
   private void sendSms(
-      String phoneNumber,
-      SmsTemplate smsTemplate,
-      Map<String, String> smsTemplateValues,
-      String senderId,
-      NotificationClient notificationClient) {
+      String phoneNumber, SmsTemplate smsTemplate, Map<String, String> smsTemplateValues) {
     try {
       log.atError().setMessage("HTTP call to send an SMS").addKeyValue("method", "sendSms").log();
 
-      notificationClient.sendSms(
-          smsTemplate.getNotifyTemplateId().toString(), phoneNumber, smsTemplateValues, senderId);
+      govNotifyClient.sendSms(
+          smsTemplate.getNotifyServiceRef(),
+          smsTemplate.getNotifyTemplateId().toString(),
+          phoneNumber,
+          smsTemplateValues);
+    } catch (NotifyRateLimitExceededException
+        | CallNotPermittedException
+        | BulkheadFullException e) {
+      throw new NotifyUnavailableException(e);
     } catch (NotificationClientException e) {
       log.atError()
           .setMessage("Error with Gov Notify when attempting to send SMS")
@@ -217,25 +217,16 @@ public class SmsFulfilmentEndpoint {
     }
   }
 
-  private void validateTemplateOnSurvey(SmsTemplate template, Survey survey) {
-    if (!smsRequestService.isSmsTemplateAllowedOnSurvey(template, survey)) {
+  private void validateTemplateOnSurvey(SmsTemplate template, UUID surveyId) {
+    if (!smsRequestService.isSmsTemplateAllowedOnSurvey(template, surveyId)) {
       throw new ResponseStatusException(
           HttpStatus.BAD_REQUEST, "The template for this pack code is not allowed on this survey");
     }
   }
 
-  public SmsTemplate findSmsTemplateByPackCode(String packCode) {
-    return smsTemplateRepository
-        .findById(packCode)
-        .orElseThrow(
-            () ->
-                new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST, "A template does not exist with this pack code"));
-  }
-
-  public Case findCaseById(UUID caseId) {
-    return caseRepository
-        .findById(caseId)
+  public FulfilmentCaseFields findCaseById(UUID caseId, String[] template) {
+    return caseDataLookup
+        .findFulfilmentCase(caseId, PersonalisationPlan.forTemplate(template))
         .orElseThrow(
             () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "The case does not exist"));
   }
@@ -0,0 +1,23 @@
+package uk.gov.ons.ssdc.notifysvc.messaging;
+
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands inbound ByteString payloads over as they are. The simple converter copies the message data
+ * into a byte[] before looking at the payload type, even when the ByteString itself is asked for.
+ */
+@Component
+public class ByteStringPubSubMessageConverter extends SimplePubSubMessageConverter {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+    if (payloadType == ByteString.class) {
+      return (T) message.getData();
+    }
+    return super.fromPubSubMessage(message, payloadType);
+  }
+}
@@ -3,56 +3,47 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMITER_EXCEPTION_MESSAGE;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMIT_ERROR_HTTP_STATUS;
 import static uk.gov.ons.ssdc.notifysvc.utils.JsonHelper.convertJsonBytesToEvent;
-import static uk.gov.ons.ssdc.notifysvc.utils.PersonalisationTemplateHelper.buildPersonalisationFromTemplate;
 
+import com.google.protobuf.ByteString;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
-import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
-import uk.gov.service.notify.NotificationClient;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.service.notify.NotificationClientException;
 
 @MessageEndpoint
 public class EmailRequestEnrichedReceiver {
 
-  @Value("${email-request-enriched-delay}")
-  private int emailRequestEnrichedDelay;
-
   private static final Logger log = LoggerFactory.getLogger(EmailRequestEnrichedReceiver.class);
 
   private final EmailTemplateRepository emailTemplateRepository;
-  private final CaseRepository caseRepository;
-  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final CaseDataLookup caseDataLookup;
+  private final GovNotifyClient govNotifyClient;
 
   public EmailRequestEnrichedReceiver(
       EmailTemplateRepository emailTemplateRepository,
-      CaseRepository caseRepository,
-      NotifyServiceRefMapping notifyServiceRefMapping) {
+      CaseDataLookup caseDataLookup,
+      GovNotifyClient govNotifyClient) {
     this.emailTemplateRepository = emailTemplateRepository;
-    this.caseRepository = caseRepository;
-    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.caseDataLookup = caseDataLookup;
+    this.govNotifyClient = govNotifyClient;
   }
 
   @ServiceActivator(inputChannel = "emailRequestEnrichedInputChannel", adviceChain = "retryAdvice")
-  public void receiveMessage(Message<byte[]> message) {
-    try {
-      Thread.sleep(emailRequestEnrichedDelay);
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted during throttling delay", e);
-    }
+  public void receiveMessage(Message<ByteString> message) {
     long startTime = System.currentTimeMillis();
 
-    EventDTO event = convertJsonBytesToEvent(message.getPayload());
+    EventDTO event = convertJsonBytesToEvent(message.getPayload(), EmailRequestEnriched.class);
     EmailRequestEnriched emailRequestEnriched = event.getPayload().getEmailRequestEnriched();
 
     log.atDebug()
@@ -71,27 +62,28 @@ public class EmailRequestEnrichedReceiver {
                     new RuntimeException(
                         "Email template not found: " + emailRequestEnriched.getPackCode()));
 
-    Case caze =
-        caseRepository
-            .findById(emailRequestEnriched.getCaseId())
+    PersonalisationPlan personalisationPlan =
+        PersonalisationPlan.forTemplate(emailTemplate.getTemplate());
+    CasePersonalisationFields caseFields =
+        caseDataLookup
+            .findPersonalisationFields(emailRequestEnriched.getCaseId(), personalisationPlan)
             .orElseThrow(
                 () ->
                     new RuntimeException(
                         "Case not found with ID: " + emailRequestEnriched.getCaseId()));
 
     Map<String, String> personalisationTemplateValues =
-        buildPersonalisationFromTemplate(
-            emailTemplate.getTemplate(),
-            caze,
+        personalisationPlan.buildPersonalisation(
+            caseFields.getSample(),
+            caseFields.getSampleSensitive(),
             emailRequestEnriched.getUac(),
             emailRequestEnriched.getQid(),
             emailRequestEnriched.getPersonalisation());
     String notifyServiceRef = emailTemplate.getNotifyServiceRef();
-    NotificationClient notificationClient =
-        notifyServiceRefMapping.getNotifyClient(notifyServiceRef);
 
     try {
-      notificationClient.sendEmail(
+      govNotifyClient.sendEmail(
+          notifyServiceRef,
           emailTemplate.getNotifyTemplateId().toString(),
           emailRequestEnriched.getEmail(),
           personalisationTemplateValues,
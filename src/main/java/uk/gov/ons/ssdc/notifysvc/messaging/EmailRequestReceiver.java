@@ -2,9 +2,11 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static uk.gov.ons.ssdc.notifysvc.utils.JsonHelper.convertJsonBytesToEvent;
 
+import com.google.protobuf.ByteString;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,10 +20,12 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.EmailRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.Constants;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
 @MessageEndpoint
@@ -32,20 +36,23 @@ public class EmailRequestReceiver {
 
   private static final Logger log = LoggerFactory.getLogger(EmailRequestReceiver.class);
 
-  private final CaseRepository caseRepository;
+  private final CaseDataLookup caseDataLookup;
   private final EmailTemplateRepository emailTemplateRepository;
   private final EmailRequestService emailRequestService;
   private final PubSubHelper pubSubHelper;
+  private final OutboxEventStore outboxEventStore;
 
   public EmailRequestReceiver(
-      CaseRepository caseRepository,
+      CaseDataLookup caseDataLookup,
       EmailTemplateRepository emailTemplateRepository,
       EmailRequestService emailRequestService,
-      PubSubHelper pubSubHelper) {
-    this.caseRepository = caseRepository;
+      PubSubHelper pubSubHelper,
+      OutboxEventStore outboxEventStore) {
+    this.caseDataLookup = caseDataLookup;
     this.emailTemplateRepository = emailTemplateRepository;
     this.emailRequestService = emailRequestService;
     this.pubSubHelper = pubSubHelper;
+    this.outboxEventStore = outboxEventStore;
   }
 
   private void validateEmailAddress(String emailAddress) {
@@ -57,9 +64,9 @@ public class EmailRequestReceiver {
   }
 
   @ServiceActivator(inputChannel = "emailRequestInputChannel", adviceChain = "retryAdvice")
-  public void receiveMessage(Message<byte[]> message) {
+  public void receiveMessage(Message<ByteString> message) {
     long startTime = System.currentTimeMillis();
-    EventDTO emailRequestEvent = convertJsonBytesToEvent(message.getPayload());
+    EventDTO emailRequestEvent = convertJsonBytesToEvent(message.getPayload(), EmailRequest.class);
     EventHeaderDTO emailRequestHeader = emailRequestEvent.getHeader();
     EmailRequest emailRequest = emailRequestEvent.getPayload().getEmailRequest();
     log.atDebug()
@@ -80,7 +87,8 @@ public class EmailRequestReceiver {
                     new RuntimeException(
                         "Email template not found: " + emailRequest.getPackCode()));
 
-    if (!caseRepository.existsById(emailRequest.getCaseId())) {
+    if (!caseDataLookup.caseExists(
+        emailRequest.getCaseId(), PersonalisationPlan.forTemplate(emailTemplate.getTemplate()))) {
       throw new RuntimeException("Case not found with ID: " + emailRequest.getCaseId());
     }
 
@@ -89,23 +97,26 @@ public class EmailRequestReceiver {
     EventDTO emailRequestEnrichedEvent =
         buildEmailRequestEnrichedEvent(emailRequest, emailRequestHeader, newUacQidPair);
 
-    // Send the event, including the UAC/QID pair if required, to be linked and logged
-    emailRequestService.buildAndSendEmailConfirmation(
-        emailRequest.getCaseId(),
-        emailRequest.getPackCode(),
-        emailRequest.getUacMetadata(),
-        emailRequest.getPersonalisation(),
-        newUacQidPair,
-        emailRequest.isScheduled(),
-        emailRequestHeader.getSource(),
-        emailRequestHeader.getChannel(),
-        emailRequestHeader.getCorrelationId(),
-        emailRequestHeader.getOriginatingUser());
-
-    // Send the enriched Email Request, now including the UAC/QID pair if required.
-    // This enriched message can then safely be retried multiple times without potentially
-    // generating and linking more, unnecessary UAC/QID pairs
-    pubSubHelper.publishAndConfirm(emailRequestEnrichedTopic, emailRequestEnrichedEvent);
+    // Build the event, including the UAC/QID pair if required, to be linked and logged
+    EventDTO emailConfirmationEvent =
+        emailRequestService.buildEmailConfirmationEvent(
+            emailRequest.getCaseId(),
+            emailRequest.getPackCode(),
+            emailRequest.getUacMetadata(),
+            emailRequest.getPersonalisation(),
+            newUacQidPair,
+            emailRequest.isScheduled(),
+            emailRequestHeader.getSource(),
+            emailRequestHeader.getChannel(),
+            emailRequestHeader.getCorrelationId(),
+            emailRequestHeader.getOriginatingUser());
+
+    if (outboxEventStore.isEnabled()) {
+      // Both events are committed together, then relayed in order
+      outboxEventStore.append(emailConfirmationEvent, emailRequestEnrichedEvent);
+    } else {
+      publishAndConfirm(emailConfirmationEvent, emailRequestEnrichedEvent, newUacQidPair);
+    }
 
     log.atDebug()
         .setMessage("Finished processing email request message")
@@ -117,6 +128,27 @@ public class EmailRequestReceiver {
         .log();
   }
 
+  private void publishAndConfirm(
+      EventDTO emailConfirmationEvent,
+      EventDTO emailRequestEnrichedEvent,
+      Optional<UacQidCreatedPayloadDTO> newUacQidPair) {
+    CompletableFuture<String> confirmationPublished =
+        emailRequestService.sendEmailConfirmationAsync(emailConfirmationEvent);
+
+    // A new UAC/QID pair must be confirmed for linking before the enriched message carrying it is
+    // sent, otherwise both messages can be published at once
+    if (newUacQidPair.isPresent()) {
+      pubSubHelper.awaitPublished(confirmationPublished);
+    }
+
+    // Send the enriched Email Request, now including the UAC/QID pair if required.
+    // This enriched message can then safely be retried multiple times without potentially
+    // generating and linking more, unnecessary UAC/QID pairs
+    pubSubHelper.awaitPublished(
+        confirmationPublished,
+        pubSubHelper.publishAsync(emailRequestEnrichedTopic, emailRequestEnrichedEvent));
+  }
+
   private EventDTO buildEmailRequestEnrichedEvent(
       EmailRequest emailRequest,
       EventHeaderDTO emailRequestHeader,
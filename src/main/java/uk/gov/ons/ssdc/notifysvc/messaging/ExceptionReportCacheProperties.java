@@ -0,0 +1,16 @@
+package uk.gov.ons.ssdc.notifysvc.messaging;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "exceptionreportcache")
+public class ExceptionReportCacheProperties {
+  private boolean enabled;
+  private long maximumSize;
+  private Duration expireAfterWrite;
+  private Duration refreshAfterWrite;
+}
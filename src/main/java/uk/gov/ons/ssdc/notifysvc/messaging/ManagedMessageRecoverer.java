@@ -2,9 +2,18 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMITER_EXCEPTION_MESSAGE;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.protobuf.ByteString;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +27,7 @@ import org.springframework.stereotype.Component;
 import uk.gov.ons.ssdc.notifysvc.client.ExceptionManagerClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.ExceptionReportResponse;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.SkippedMessage;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
 import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
 
 @Component
@@ -29,9 +39,26 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
   private boolean logStackTraces;
 
   private final ExceptionManagerClient exceptionManagerClient;
+  private final ExceptionReportCacheProperties exceptionReportCacheProperties;
+  private final LoadingCache<ReportedFailure, ExceptionReportResponse> exceptionReports;
 
-  public ManagedMessageRecoverer(ExceptionManagerClient exceptionManagerClient) {
+  public ManagedMessageRecoverer(
+      ExceptionManagerClient exceptionManagerClient,
+      ExceptionReportCacheProperties exceptionReportCacheProperties,
+      MeterRegistry meterRegistry) {
     this.exceptionManagerClient = exceptionManagerClient;
+    this.exceptionReportCacheProperties = exceptionReportCacheProperties;
+
+    // Decisions are refreshed in the background while the message keeps failing, so a change made
+    // in the exception manager is picked up within refresh-after-write
+    exceptionReports =
+        Caffeine.newBuilder()
+            .maximumSize(exceptionReportCacheProperties.getMaximumSize())
+            .expireAfterWrite(exceptionReportCacheProperties.getExpireAfterWrite())
+            .refreshAfterWrite(exceptionReportCacheProperties.getRefreshAfterWrite())
+            .recordStats()
+            .build(this::reportException);
+    CaffeineCacheMetrics.monitor(meterRegistry, exceptionReports, "exceptionReports");
   }
 
   @Override
@@ -46,13 +73,22 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
 
     MessagingException messagingException = (MessagingException) retryContext.getLastThrowable();
     Message<?> message = messagingException.getFailedMessage();
+
+    // A dependency is known to be unavailable, so there's nothing to report. Nack straight away
+    if (isRejectedByDependencyGuard(retryContext.getLastThrowable())) {
+      log.atDebug()
+          .setMessage("Dependency unavailable, message will be retried")
+          .addKeyValue("reason", ExceptionUtils.getRootCauseMessage(messagingException))
+          .log();
+      throw new MessageHandlingException(
+          message, "Cannot process this message at this time, but it will be retried");
+    }
+
     BasicAcknowledgeablePubsubMessage originalMessage =
         (BasicAcknowledgeablePubsubMessage)
             message.getHeaders().get(GcpPubSubHeaders.ORIGINAL_MESSAGE);
     String subscriptionName = originalMessage.getProjectSubscriptionName().getSubscription();
-    ByteString originalMessageByteString = originalMessage.getPubsubMessage().getData();
-    byte[] rawMessageBody = new byte[originalMessageByteString.size()];
-    originalMessageByteString.copyTo(rawMessageBody, 0);
+    ByteString rawMessageBody = originalMessage.getPubsubMessage().getData();
 
     String messageHash = HashHelper.hash(rawMessageBody);
 
@@ -66,7 +102,13 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
     }
 
     ExceptionReportResponse reportResult =
-        getExceptionReportResponse(cause, messageHash, stackTraceRootCause, subscriptionName);
+        getExceptionReportResponse(
+            new ReportedFailure(
+                messageHash,
+                subscriptionName,
+                cause.getClass().getName(),
+                cause.getMessage(),
+                stackTraceRootCause));
 
     if (skipMessage(reportResult, messageHash, rawMessageBody, subscriptionName)) {
       return null; // Our work here is done
@@ -82,13 +124,19 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
         message, "Cannot process this message at this time, but it will be retried");
   }
 
-  private ExceptionReportResponse getExceptionReportResponse(
-      Throwable cause, String messageHash, String stackTraceRootCause, String subscriptionName) {
+  private ExceptionReportResponse getExceptionReportResponse(ReportedFailure reportedFailure) {
     ExceptionReportResponse reportResult = null;
     try {
-      reportResult =
-          exceptionManagerClient.reportException(
-              messageHash, SERVICE_NAME, subscriptionName, cause, stackTraceRootCause);
+      if (!exceptionReportCacheProperties.isEnabled()) {
+        reportResult = reportException(reportedFailure);
+      } else {
+        reportResult = exceptionReports.get(reportedFailure);
+
+        // Skips and peeks are acted on once, so the exception manager is asked again next time
+        if (reportResult != null && (reportResult.isSkipIt() || reportResult.isPeek())) {
+          exceptionReports.invalidate(reportedFailure);
+        }
+      }
     } catch (Exception exceptionManagerClientException) {
       log.atWarn()
           .setMessage(
@@ -99,10 +147,20 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
     return reportResult;
   }
 
+  private ExceptionReportResponse reportException(ReportedFailure reportedFailure) {
+    return exceptionManagerClient.reportException(
+        reportedFailure.getMessageHash(),
+        SERVICE_NAME,
+        reportedFailure.getSubscriptionName(),
+        reportedFailure.getExceptionClass(),
+        reportedFailure.getExceptionMessage(),
+        reportedFailure.getStackTraceRootCause());
+  }
+
   private boolean skipMessage(
       ExceptionReportResponse reportResult,
       String messageHash,
-      byte[] rawMessageBody,
+      ByteString rawMessageBody,
       String subscriptionName) {
 
     if (reportResult == null || !reportResult.isSkipIt()) {
@@ -115,7 +173,7 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
     try {
       SkippedMessage skippedMessage = new SkippedMessage();
       skippedMessage.setMessageHash(messageHash);
-      skippedMessage.setMessagePayload(rawMessageBody);
+      skippedMessage.setMessagePayload(rawMessageBody.toByteArray());
       skippedMessage.setService(SERVICE_NAME);
       skippedMessage.setSubscription(subscriptionName);
       skippedMessage.setContentType("application/json");
@@ -140,14 +198,14 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
   }
 
   private void peekMessage(
-      ExceptionReportResponse reportResult, String messageHash, byte[] rawMessageBody) {
+      ExceptionReportResponse reportResult, String messageHash, ByteString rawMessageBody) {
     if (reportResult == null || !reportResult.isPeek()) {
       return;
     }
 
     try {
       // Send it back to the exception manager so it can be peeked
-      exceptionManagerClient.respondToPeek(messageHash, rawMessageBody);
+      exceptionManagerClient.respondToPeek(messageHash, rawMessageBody.toByteArray());
     } catch (Exception respondException) {
       // Nothing we can do about this - ignore it
     }
@@ -201,6 +259,12 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
     }
   }
 
+  private boolean isRejectedByDependencyGuard(Throwable throwable) {
+    return ExceptionUtils.indexOfType(throwable, CallNotPermittedException.class) != -1
+        || ExceptionUtils.indexOfType(throwable, BulkheadFullException.class) != -1
+        || ExceptionUtils.indexOfType(throwable, NotifyRateLimitExceededException.class) != -1;
+  }
+
   private String findUsefulRootCauseInStackTrace(Throwable cause) {
     String[] stackTrace = ExceptionUtils.getRootCauseStackTrace(cause);
 
@@ -213,4 +277,17 @@ public class ManagedMessageRecoverer implements RecoveryCallback<Object> {
 
     return stackTrace[0];
   }
+
+  // The same message failing again is the same failure, whatever it failed with this time. Only the
+  // details reported are kept, not the exception, so a cached entry doesn't hold on to its stack
+  @Getter
+  @AllArgsConstructor
+  @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+  private static class ReportedFailure {
+    @EqualsAndHashCode.Include private final String messageHash;
+    @EqualsAndHashCode.Include private final String subscriptionName;
+    private final String exceptionClass;
+    private final String exceptionMessage;
+    private final String stackTraceRootCause;
+  }
 }
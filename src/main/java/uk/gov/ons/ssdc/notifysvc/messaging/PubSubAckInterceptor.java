@@ -0,0 +1,56 @@
+package uk.gov.ons.ssdc.notifysvc.messaging;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+/**
+ * Acks or nacks a manually acknowledged Pub/Sub message once its handler has finished on the
+ * executor thread, giving the same outcome the adapter would in AUTO ack mode.
+ */
+public class PubSubAckInterceptor implements ExecutorChannelInterceptor {
+  private static final Logger log = LoggerFactory.getLogger(PubSubAckInterceptor.class);
+
+  @Override
+  public void afterMessageHandled(
+      Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+    BasicAcknowledgeablePubsubMessage originalMessage =
+        message
+            .getHeaders()
+            .get(GcpPubSubHeaders.ORIGINAL_MESSAGE, BasicAcknowledgeablePubsubMessage.class);
+    if (originalMessage == null) {
+      return;
+    }
+
+    if (ex == null) {
+      logIfFailed(originalMessage.ack(), "ack", originalMessage);
+    } else {
+      logIfFailed(originalMessage.nack(), "nack", originalMessage);
+    }
+  }
+
+  // A failed ack or nack leaves the message to be redelivered after its ack deadline
+  private void logIfFailed(
+      CompletableFuture<Void> result,
+      String action,
+      BasicAcknowledgeablePubsubMessage originalMessage) {
+    CompletableFuture<Void> unused =
+        result.whenComplete(
+            (ignored, throwable) -> {
+              if (throwable != null) {
+                log.atWarn()
+                    .setMessage("Could not acknowledge message")
+                    .setCause(throwable)
+                    .addKeyValue("action", action)
+                    .addKeyValue("message_id", originalMessage.getPubsubMessage().getMessageId())
+                    .log();
+              }
+            });
+  }
+}
@@ -3,51 +3,41 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMITER_EXCEPTION_MESSAGE;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMIT_ERROR_HTTP_STATUS;
 import static uk.gov.ons.ssdc.notifysvc.utils.JsonHelper.convertJsonBytesToEvent;
-import static uk.gov.ons.ssdc.notifysvc.utils.PersonalisationTemplateHelper.buildPersonalisationFromTemplate;
 
+import com.google.protobuf.ByteString;
 import java.util.Map;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
-import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
-import uk.gov.service.notify.NotificationClient;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.service.notify.NotificationClientException;
 
 @MessageEndpoint
 public class SmsRequestEnrichedReceiver {
 
-  @Value("${sms-request-enriched-delay}")
-  private int smsRequestEnrichedDelay;
-
   private final SmsTemplateRepository smsTemplateRepository;
-  private final CaseRepository caseRepository;
-  private final NotifyServiceRefMapping notifyServiceRefMapping;
+  private final CaseDataLookup caseDataLookup;
+  private final GovNotifyClient govNotifyClient;
 
   public SmsRequestEnrichedReceiver(
       SmsTemplateRepository smsTemplateRepository,
-      CaseRepository caseRepository,
-      NotifyServiceRefMapping notifyServiceRefMapping) {
+      CaseDataLookup caseDataLookup,
+      GovNotifyClient govNotifyClient) {
     this.smsTemplateRepository = smsTemplateRepository;
-    this.caseRepository = caseRepository;
-    this.notifyServiceRefMapping = notifyServiceRefMapping;
+    this.caseDataLookup = caseDataLookup;
+    this.govNotifyClient = govNotifyClient;
   }
 
   @ServiceActivator(inputChannel = "smsRequestEnrichedInputChannel", adviceChain = "retryAdvice")
-  public void receiveMessage(Message<byte[]> message) {
-    try {
-      Thread.sleep(smsRequestEnrichedDelay);
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted during throttling delay", e);
-    }
-
-    EventDTO event = convertJsonBytesToEvent(message.getPayload());
+  public void receiveMessage(Message<ByteString> message) {
+    EventDTO event = convertJsonBytesToEvent(message.getPayload(), SmsRequestEnriched.class);
     SmsRequestEnriched smsRequestEnriched = event.getPayload().getSmsRequestEnriched();
     SmsTemplate smsTemplate =
         smsTemplateRepository
@@ -57,32 +47,31 @@ public class SmsRequestEnrichedReceiver {
                     new RuntimeException(
                         "SMS Template not found: " + smsRequestEnriched.getPackCode()));
 
-    Case caze =
-        caseRepository
-            .findById(smsRequestEnriched.getCaseId())
+    PersonalisationPlan personalisationPlan =
+        PersonalisationPlan.forTemplate(smsTemplate.getTemplate());
+    CasePersonalisationFields caseFields =
+        caseDataLookup
+            .findPersonalisationFields(smsRequestEnriched.getCaseId(), personalisationPlan)
             .orElseThrow(
                 () ->
                     new RuntimeException(
                         "Case not found with ID: " + smsRequestEnriched.getCaseId()));
 
     Map<String, String> personalisationTemplateValues =
-        buildPersonalisationFromTemplate(
-            smsTemplate.getTemplate(),
-            caze,
+        personalisationPlan.buildPersonalisation(
+            caseFields.getSample(),
+            caseFields.getSampleSensitive(),
             smsRequestEnriched.getUac(),
             smsRequestEnriched.getQid(),
             smsRequestEnriched.getPersonalisation());
     String notifyServiceRef = smsTemplate.getNotifyServiceRef();
-    String senderId = notifyServiceRefMapping.getSenderId(notifyServiceRef);
-    NotificationClient notificationClient =
-        notifyServiceRefMapping.getNotifyClient(notifyServiceRef);
 
     try {
-      notificationClient.sendSms(
+      govNotifyClient.sendSms(
+          notifyServiceRef,
           smsTemplate.getNotifyTemplateId().toString(),
           smsRequestEnriched.getPhoneNumber(),
-          personalisationTemplateValues,
-          senderId);
+          personalisationTemplateValues);
     } catch (NotificationClientException e) {
       if (e.getHttpResult() == RATE_LIMIT_ERROR_HTTP_STATUS) {
         throw new RuntimeException(
@@ -2,9 +2,11 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static uk.gov.ons.ssdc.notifysvc.utils.JsonHelper.convertJsonBytesToEvent;
 
+import com.google.protobuf.ByteString;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
@@ -16,10 +18,12 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequest;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.SmsRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.Constants;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
 @MessageEndpoint
@@ -28,25 +32,28 @@ public class SmsRequestReceiver {
   @Value("${queueconfig.sms-request-enriched-topic}")
   private String smsRequestEnrichedTopic;
 
-  private final CaseRepository caseRepository;
+  private final CaseDataLookup caseDataLookup;
   private final SmsTemplateRepository smsTemplateRepository;
   private final SmsRequestService smsRequestService;
   private final PubSubHelper pubSubHelper;
+  private final OutboxEventStore outboxEventStore;
 
   public SmsRequestReceiver(
-      CaseRepository caseRepository,
+      CaseDataLookup caseDataLookup,
       SmsTemplateRepository smsTemplateRepository,
       SmsRequestService smsRequestService,
-      PubSubHelper pubSubHelper) {
-    this.caseRepository = caseRepository;
+      PubSubHelper pubSubHelper,
+      OutboxEventStore outboxEventStore) {
+    this.caseDataLookup = caseDataLookup;
     this.smsTemplateRepository = smsTemplateRepository;
     this.smsRequestService = smsRequestService;
     this.pubSubHelper = pubSubHelper;
+    this.outboxEventStore = outboxEventStore;
   }
 
   @ServiceActivator(inputChannel = "smsRequestInputChannel", adviceChain = "retryAdvice")
-  public void receiveMessage(Message<byte[]> message) {
-    EventDTO smsRequestEvent = convertJsonBytesToEvent(message.getPayload());
+  public void receiveMessage(Message<ByteString> message) {
+    EventDTO smsRequestEvent = convertJsonBytesToEvent(message.getPayload(), SmsRequest.class);
     EventHeaderDTO smsRequestHeader = smsRequestEvent.getHeader();
     SmsRequest smsRequest = smsRequestEvent.getPayload().getSmsRequest();
 
@@ -60,7 +67,8 @@ public class SmsRequestReceiver {
             .orElseThrow(
                 () -> new RuntimeException("SMS Template not found: " + smsRequest.getPackCode()));
 
-    if (!caseRepository.existsById(smsRequest.getCaseId())) {
+    if (!caseDataLookup.caseExists(
+        smsRequest.getCaseId(), PersonalisationPlan.forTemplate(smsTemplate.getTemplate()))) {
       throw new RuntimeException("Case not found with ID: " + smsRequest.getCaseId());
     }
 
@@ -69,23 +77,47 @@ public class SmsRequestReceiver {
     EventDTO smsRequestEnrichedEvent =
         buildSmsRequestEnrichedEvent(smsRequest, smsRequestHeader, newUacQidPair);
 
-    // Send the event, including the UAC/QID pair if required, to be linked and logged
-    smsRequestService.buildAndSendSmsConfirmation(
-        smsRequest.getCaseId(),
-        smsRequest.getPackCode(),
-        smsRequest.getUacMetadata(),
-        smsRequest.getPersonalisation(),
-        newUacQidPair,
-        smsRequest.isScheduled(),
-        smsRequestHeader.getSource(),
-        smsRequestHeader.getChannel(),
-        smsRequestHeader.getCorrelationId(),
-        smsRequestHeader.getOriginatingUser());
+    // Build the event, including the UAC/QID pair if required, to be linked and logged
+    EventDTO smsConfirmationEvent =
+        smsRequestService.buildSmsConfirmationEvent(
+            smsRequest.getCaseId(),
+            smsRequest.getPackCode(),
+            smsRequest.getUacMetadata(),
+            smsRequest.getPersonalisation(),
+            newUacQidPair,
+            smsRequest.isScheduled(),
+            smsRequestHeader.getSource(),
+            smsRequestHeader.getChannel(),
+            smsRequestHeader.getCorrelationId(),
+            smsRequestHeader.getOriginatingUser());
+
+    if (outboxEventStore.isEnabled()) {
+      // Both events are committed together, then relayed in order
+      outboxEventStore.append(smsConfirmationEvent, smsRequestEnrichedEvent);
+    } else {
+      publishAndConfirm(smsConfirmationEvent, smsRequestEnrichedEvent, newUacQidPair);
+    }
+  }
+
+  private void publishAndConfirm(
+      EventDTO smsConfirmationEvent,
+      EventDTO smsRequestEnrichedEvent,
+      Optional<UacQidCreatedPayloadDTO> newUacQidPair) {
+    CompletableFuture<String> confirmationPublished =
+        smsRequestService.sendSmsConfirmationAsync(smsConfirmationEvent);
+
+    // A new UAC/QID pair must be confirmed for linking before the enriched message carrying it is
+    // sent, otherwise both messages can be published at once
+    if (newUacQidPair.isPresent()) {
+      pubSubHelper.awaitPublished(confirmationPublished);
+    }
 
     // Send the enriched SMS Request, now including the UAC/QID pair if required.
     // This enriched message can then safely be retried multiple times without potentially
     // generating and linking more, unnecessary UAC/QID pairs
-    pubSubHelper.publishAndConfirm(smsRequestEnrichedTopic, smsRequestEnrichedEvent);
+    pubSubHelper.awaitPublished(
+        confirmationPublished,
+        pubSubHelper.publishAsync(smsRequestEnrichedTopic, smsRequestEnrichedEvent));
   }
 
   private EventDTO buildSmsRequestEnrichedEvent(
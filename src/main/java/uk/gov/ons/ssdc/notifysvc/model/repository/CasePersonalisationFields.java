@@ -0,0 +1,7 @@
+package uk.gov.ons.ssdc.notifysvc.model.repository;
+
+public interface CasePersonalisationFields {
+  String[] getSample();
+
+  String[] getSampleSensitive();
+}
@@ -1,7 +1,71 @@
 package uk.gov.ons.ssdc.notifysvc.model.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.ons.ssdc.common.model.entity.Case;
 
-public interface CaseRepository extends JpaRepository<Case, UUID> {}
+@Transactional(readOnly = true)
+public interface CaseRepository extends JpaRepository<Case, UUID> {
+
+  // Picks the requested keys out of the sample JSON in the database, so only those values are
+  // read back rather than the whole sample. Values are returned in the order of the keys given
+  @Query(
+      value =
+          "SELECT ARRAY(SELECT c.sample ->> k.key"
+              + " FROM unnest(CAST(:sampleKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sample\","
+              + " ARRAY(SELECT c.sample_sensitive ->> k.key"
+              + " FROM unnest(CAST(:sensitiveKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sampleSensitive\""
+              + " FROM casev3.cases c WHERE c.id = :caseId",
+      nativeQuery = true)
+  Optional<CasePersonalisationFields> findPersonalisationFields(
+      @Param("caseId") UUID caseId,
+      @Param("sampleKeys") String[] sampleKeys,
+      @Param("sensitiveKeys") String[] sensitiveKeys);
+
+  // As findPersonalisationFields, plus the survey the case belongs to for the fulfilment checks
+  @Query(
+      value =
+          "SELECT ce.survey_id AS \"surveyId\","
+              + " ARRAY(SELECT c.sample ->> k.key"
+              + " FROM unnest(CAST(:sampleKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sample\","
+              + " ARRAY(SELECT c.sample_sensitive ->> k.key"
+              + " FROM unnest(CAST(:sensitiveKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sampleSensitive\""
+              + " FROM casev3.cases c"
+              + " JOIN casev3.collection_exercise ce ON ce.id = c.collection_exercise_id"
+              + " WHERE c.id = :caseId",
+      nativeQuery = true)
+  Optional<FulfilmentCaseFields> findFulfilmentCase(
+      @Param("caseId") UUID caseId,
+      @Param("sampleKeys") String[] sampleKeys,
+      @Param("sensitiveKeys") String[] sensitiveKeys);
+
+  @Query("SELECT c.id FROM Case c WHERE c.id IN :caseIds")
+  List<UUID> findExistingIds(@Param("caseIds") Collection<UUID> caseIds);
+
+  // As findPersonalisationFields, for a batch of cases which are told apart by caseId
+  @Query(
+      value =
+          "SELECT c.id AS \"caseId\","
+              + " ARRAY(SELECT c.sample ->> k.key"
+              + " FROM unnest(CAST(:sampleKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sample\","
+              + " ARRAY(SELECT c.sample_sensitive ->> k.key"
+              + " FROM unnest(CAST(:sensitiveKeys AS text[])) WITH ORDINALITY AS k(key, position)"
+              + " ORDER BY k.position) AS \"sampleSensitive\""
+              + " FROM casev3.cases c WHERE c.id IN (:caseIds)",
+      nativeQuery = true)
+  List<KeyedCasePersonalisationFields> findPersonalisationFieldsByIds(
+      @Param("caseIds") Collection<UUID> caseIds,
+      @Param("sampleKeys") String[] sampleKeys,
+      @Param("sensitiveKeys") String[] sensitiveKeys);
+}
@@ -1,6 +1,14 @@
 package uk.gov.ons.ssdc.notifysvc.model.repository;
 
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
 
-public interface EmailTemplateRepository extends JpaRepository<EmailTemplate, String> {}
+@Transactional(readOnly = true)
+public interface EmailTemplateRepository extends JpaRepository<EmailTemplate, String> {
+  @Override
+  @Cacheable(cacheNames = "emailTemplates")
+  Optional<EmailTemplate> findById(String packCode);
+}
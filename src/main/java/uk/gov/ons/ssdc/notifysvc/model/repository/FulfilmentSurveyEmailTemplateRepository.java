@@ -1,13 +1,20 @@
 package uk.gov.ons.ssdc.notifysvc.model.repository;
 
+import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
-import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.ons.ssdc.common.model.entity.FulfilmentSurveyEmailTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
 
+@Transactional(readOnly = true)
 public interface FulfilmentSurveyEmailTemplateRepository
     extends JpaRepository<FulfilmentSurveyEmailTemplate, UUID> {
 
-  boolean existsByEmailTemplateAndSurvey(EmailTemplate emailTemplate, Survey survey);
+  boolean existsBySurveyIdAndEmailTemplatePackCode(UUID surveyId, String packCode);
+
+  @Query(
+      "SELECT f.survey.id AS surveyId, f.emailTemplate.packCode AS packCode"
+          + " FROM FulfilmentSurveyEmailTemplate f")
+  List<SurveyPackCode> findAllSurveyPackCodes();
 }
@@ -1,13 +1,20 @@
 package uk.gov.ons.ssdc.notifysvc.model.repository;
 
+import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.ons.ssdc.common.model.entity.FulfilmentSurveySmsTemplate;
-import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
 
+@Transactional(readOnly = true)
 public interface FulfilmentSurveySmsTemplateRepository
     extends JpaRepository<FulfilmentSurveySmsTemplate, UUID> {
 
-  boolean existsBySmsTemplateAndSurvey(SmsTemplate smsTemplate, Survey survey);
+  boolean existsBySurveyIdAndSmsTemplatePackCode(UUID surveyId, String packCode);
+
+  @Query(
+      "SELECT f.survey.id AS surveyId, f.smsTemplate.packCode AS packCode"
+          + " FROM FulfilmentSurveySmsTemplate f")
+  List<SurveyPackCode> findAllSurveyPackCodes();
 }
@@ -0,0 +1,7 @@
+package uk.gov.ons.ssdc.notifysvc.model.repository;
+
+import java.util.UUID;
+
+public interface KeyedCasePersonalisationFields extends CasePersonalisationFields {
+  UUID getCaseId();
+}
@@ -1,6 +1,14 @@
 package uk.gov.ons.ssdc.notifysvc.model.repository;
 
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
 
-public interface SmsTemplateRepository extends JpaRepository<SmsTemplate, String> {}
+@Transactional(readOnly = true)
+public interface SmsTemplateRepository extends JpaRepository<SmsTemplate, String> {
+  @Override
+  @Cacheable(cacheNames = "smsTemplates")
+  Optional<SmsTemplate> findById(String packCode);
+}
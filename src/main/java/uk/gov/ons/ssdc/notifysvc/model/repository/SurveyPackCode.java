@@ -0,0 +1,9 @@
+package uk.gov.ons.ssdc.notifysvc.model.repository;
+
+import java.util.UUID;
+
+public interface SurveyPackCode {
+  UUID getSurveyId();
+
+  String getPackCode();
+}
@@ -0,0 +1,24 @@
+package uk.gov.ons.ssdc.notifysvc.outbox;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+  // The outbox table lives in a schema owned by this service, separate to the shared casev3 schema
+  @Bean
+  public DataSourceScriptDatabaseInitializer outboxSchemaInitializer(DataSource dataSource) {
+    DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+    settings.setSchemaLocations(List.of("classpath:outbox/schema.sql"));
+    settings.setMode(DatabaseInitializationMode.ALWAYS);
+    return new DataSourceScriptDatabaseInitializer(dataSource, settings);
+  }
+}
@@ -0,0 +1,14 @@
+package uk.gov.ons.ssdc.notifysvc.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+  private long id;
+  private String topic;
+  private String payload;
+}
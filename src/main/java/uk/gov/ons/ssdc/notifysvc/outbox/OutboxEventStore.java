@@ -0,0 +1,65 @@
+package uk.gov.ons.ssdc.notifysvc.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.utils.EventCodec;
+
+@Component
+public class OutboxEventStore {
+  private static final String INSERT_EVENT =
+      "INSERT INTO notifyservice.outbox_event (topic, payload) VALUES (?, ?)";
+  private static final String LOCK_NEXT_EVENTS =
+      "SELECT id, topic, payload FROM notifyservice.outbox_event ORDER BY id LIMIT ?"
+          + " FOR UPDATE SKIP LOCKED";
+  private static final String DELETE_EVENTS =
+      "DELETE FROM notifyservice.outbox_event WHERE id IN (:ids)";
+
+  @Value("${outbox.enabled}")
+  private boolean enabled;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  public OutboxEventStore(
+      JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // The events are committed together and relayed in the order given
+  @Transactional
+  public void append(EventDTO... events) {
+    List<Object[]> rows = new ArrayList<>(events.length);
+    for (EventDTO event : events) {
+      rows.add(new Object[] {event.getHeader().getTopic(), EventCodec.writeEventAsString(event)});
+    }
+    jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+  }
+
+  // Must be called within a transaction, which holds the row locks until the events are deleted
+  public List<OutboxEvent> lockNextEvents(int limit) {
+    return jdbcTemplate.query(
+        LOCK_NEXT_EVENTS,
+        (resultSet, rowNum) ->
+            new OutboxEvent(
+                resultSet.getLong("id"),
+                resultSet.getString("topic"),
+                resultSet.getString("payload")),
+        limit);
+  }
+
+  public void delete(List<Long> ids) {
+    namedParameterJdbcTemplate.update(DELETE_EVENTS, new MapSqlParameterSource("ids", ids));
+  }
+}
@@ -0,0 +1,96 @@
+package uk.gov.ons.ssdc.notifysvc.outbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
+
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+  @Value("${outbox.relay-batch-size}")
+  private int relayBatchSize;
+
+  private final OutboxEventStore outboxEventStore;
+  private final PubSubHelper pubSubHelper;
+  private final TransactionTemplate transactionTemplate;
+
+  public OutboxRelay(
+      OutboxEventStore outboxEventStore,
+      PubSubHelper pubSubHelper,
+      TransactionTemplate transactionTemplate) {
+    this.outboxEventStore = outboxEventStore;
+    this.pubSubHelper = pubSubHelper;
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay-interval-millis}")
+  public void relay() {
+    try {
+      int relayed;
+      do {
+        relayed = transactionTemplate.execute(status -> relayNextBatch());
+      } while (relayed == relayBatchSize);
+    } catch (RuntimeException e) {
+      // The batch is rolled back and left in the outbox, to be relayed again on the next run
+      log.atError().setMessage("Failed to relay outbox events").setCause(e).log();
+    }
+  }
+
+  int relayNextBatch() {
+    List<OutboxEvent> events = outboxEventStore.lockNextEvents(relayBatchSize);
+    if (events.isEmpty()) {
+      return 0;
+    }
+
+    // The whole batch is published before any of it is awaited, so the row locks are only held
+    // for about one publish round trip. Pub/Sub doesn't order these, so subscribers can't rely on
+    // seeing events in the order they were written
+    List<CompletableFuture<String>> publishes =
+        events.stream()
+            .map(event -> pubSubHelper.publishAsync(event.getTopic(), payloadBytes(event)))
+            .toList();
+
+    List<Long> publishedIds = new ArrayList<>(events.size());
+    for (int i = 0; i < events.size(); i++) {
+      try {
+        pubSubHelper.awaitPublished(publishes.get(i));
+        publishedIds.add(events.get(i).getId());
+      } catch (RuntimeException e) {
+        // Left in the outbox, to be relayed again on the next run
+        log.atError()
+            .setMessage("Failed to relay outbox event")
+            .addKeyValue("id", events.get(i).getId())
+            .setCause(e)
+            .log();
+      }
+    }
+
+    if (!publishedIds.isEmpty()) {
+      outboxEventStore.delete(publishedIds);
+    }
+
+    log.atDebug()
+        .setMessage("Relayed outbox events")
+        .addKeyValue("count", publishedIds.size())
+        .log();
+
+    // Any failure stops this run early, rather than spinning on events that can't be published
+    return publishedIds.size() == events.size() ? events.size() : 0;
+  }
+
+  private static byte[] payloadBytes(OutboxEvent event) {
+    return event.getPayload().getBytes(UTF_8);
+  }
+}
@@ -0,0 +1,68 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Adjusts the rate of a token bucket using additive increase, multiplicative decrease. Each success
+ * nudges the rate up so that it climbs by roughly the additive increase every second at full load,
+ * and a rate limited response cuts it by the backoff factor. Rate limited responses arriving within
+ * the backoff interval of the last cut are treated as the same overload, so a burst of in flight
+ * failures only backs off once.
+ */
+public class AimdRateController {
+  private final TokenBucket tokenBucket;
+  private final double minPermitsPerSecond;
+  private final double maxPermitsPerSecond;
+  private final double additiveIncrease;
+  private final double backoffFactor;
+  private final long backoffIntervalNanos;
+  private final LongSupplier nanoClock;
+  private long lastBackoffNanos;
+
+  public AimdRateController(
+      TokenBucket tokenBucket,
+      double minPermitsPerSecond,
+      double additiveIncrease,
+      double backoffFactor,
+      Duration backoffInterval,
+      LongSupplier nanoClock) {
+    if (backoffFactor <= 0 || backoffFactor >= 1) {
+      throw new IllegalArgumentException("Rate limit backoff factor must be between 0 and 1");
+    }
+    this.tokenBucket = tokenBucket;
+    this.maxPermitsPerSecond = tokenBucket.getPermitsPerSecond();
+    this.minPermitsPerSecond = Math.min(minPermitsPerSecond, maxPermitsPerSecond);
+    this.additiveIncrease = additiveIncrease;
+    this.backoffFactor = backoffFactor;
+    this.backoffIntervalNanos = backoffInterval.toNanos();
+    this.nanoClock = nanoClock;
+    this.lastBackoffNanos = nanoClock.getAsLong() - backoffIntervalNanos;
+  }
+
+  public TokenBucket getTokenBucket() {
+    return tokenBucket;
+  }
+
+  public double getPermitsPerSecond() {
+    return tokenBucket.getPermitsPerSecond();
+  }
+
+  public synchronized void onSuccess() {
+    double permitsPerSecond = tokenBucket.getPermitsPerSecond();
+    if (permitsPerSecond < maxPermitsPerSecond) {
+      tokenBucket.setPermitsPerSecond(
+          Math.min(maxPermitsPerSecond, permitsPerSecond + additiveIncrease / permitsPerSecond));
+    }
+  }
+
+  public synchronized void onRateLimited() {
+    long nowNanos = nanoClock.getAsLong();
+    if (nowNanos - lastBackoffNanos < backoffIntervalNanos) {
+      return;
+    }
+    lastBackoffNanos = nowNanos;
+    tokenBucket.setPermitsPerSecond(
+        Math.max(minPermitsPerSecond, tokenBucket.getPermitsPerSecond() * backoffFactor));
+  }
+}
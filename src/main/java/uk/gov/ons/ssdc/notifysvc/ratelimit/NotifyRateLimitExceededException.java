@@ -0,0 +1,8 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+/** Thrown when a Gov Notify permit could not be had within the configured maximum wait. */
+public class NotifyRateLimitExceededException extends RuntimeException {
+  public NotifyRateLimitExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,40 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifyratelimit")
+public class NotifyRateLimitProperties {
+  private double defaultPermitsPerSecond;
+  private int defaultBurst;
+  private double minPermitsPerSecond = 1;
+  private double additiveIncrease = 1;
+  private double backoffFactor = 0.5;
+  private Duration backoffInterval = Duration.ofSeconds(1);
+  private Duration maxWait = Duration.ofSeconds(5);
+  private Map<String, Limit> serviceRefs = new HashMap<>();
+
+  public Limit getLimit(String notifyServiceRef) {
+    Limit override = serviceRefs.get(notifyServiceRef);
+    Limit limit = new Limit();
+    limit.setPermitsPerSecond(
+        override != null && override.getPermitsPerSecond() > 0
+            ? override.getPermitsPerSecond()
+            : defaultPermitsPerSecond);
+    limit.setBurst(
+        override != null && override.getBurst() > 0 ? override.getBurst() : defaultBurst);
+    return limit;
+  }
+
+  @Data
+  public static class Limit {
+    private double permitsPerSecond;
+    private int burst;
+  }
+}
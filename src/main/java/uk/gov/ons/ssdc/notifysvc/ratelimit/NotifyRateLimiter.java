@@ -0,0 +1,97 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+@Component
+public class NotifyRateLimiter {
+  private final NotifyRateLimitProperties notifyRateLimitProperties;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, AimdRateController> rateControllers = new ConcurrentHashMap<>();
+
+  public NotifyRateLimiter(
+      NotifyRateLimitProperties notifyRateLimitProperties, MeterRegistry meterRegistry) {
+    this.notifyRateLimitProperties = notifyRateLimitProperties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public void acquire(String notifyServiceRef) {
+    long waitNanos = reserve(notifyServiceRef);
+    if (waitNanos == 0) {
+      return;
+    }
+
+    try {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted whilst waiting for Gov Notify rate limit", e);
+    }
+  }
+
+  public CompletableFuture<Void> acquireAsync(String notifyServiceRef) {
+    long waitNanos;
+    try {
+      waitNanos = reserve(notifyServiceRef);
+    } catch (NotifyRateLimitExceededException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (waitNanos == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return CompletableFuture.runAsync(
+        () -> {}, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+  }
+
+  private long reserve(String notifyServiceRef) {
+    long waitNanos =
+        getRateController(notifyServiceRef)
+            .getTokenBucket()
+            .tryReserve(notifyRateLimitProperties.getMaxWait().toNanos());
+    if (waitNanos < 0) {
+      throw new NotifyRateLimitExceededException(
+          "Gov Notify rate limit for " + notifyServiceRef + " is fully reserved");
+    }
+    return waitNanos;
+  }
+
+  public void recordSuccess(String notifyServiceRef) {
+    getRateController(notifyServiceRef).onSuccess();
+  }
+
+  public void recordRateLimited(String notifyServiceRef) {
+    getRateController(notifyServiceRef).onRateLimited();
+  }
+
+  public AimdRateController getRateController(String notifyServiceRef) {
+    return rateControllers.computeIfAbsent(notifyServiceRef, this::createRateController);
+  }
+
+  private AimdRateController createRateController(String notifyServiceRef) {
+    NotifyRateLimitProperties.Limit limit = notifyRateLimitProperties.getLimit(notifyServiceRef);
+    AimdRateController rateController =
+        new AimdRateController(
+            new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst()),
+            notifyRateLimitProperties.getMinPermitsPerSecond(),
+            notifyRateLimitProperties.getAdditiveIncrease(),
+            notifyRateLimitProperties.getBackoffFactor(),
+            notifyRateLimitProperties.getBackoffInterval(),
+            System::nanoTime);
+
+    Gauge.builder(
+            "notify.ratelimit.permits.per.second",
+            rateController,
+            AimdRateController::getPermitsPerSecond)
+        .description("Current Gov Notify send rate allowed for the notify service ref")
+        .tag("notifyServiceRef", notifyServiceRef)
+        .register(meterRegistry);
+
+    return rateController;
+  }
+}
@@ -0,0 +1,80 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservation style token bucket. Each caller takes a permit immediately and is told how long to
+ * wait before using it, so waiting callers are served in arrival order and the lock is never held
+ * while sleeping.
+ */
+public class TokenBucket {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final LongSupplier nanoClock;
+  private final double burst;
+  private double nanosPerPermit;
+  private double storedPermits;
+  private long lastRefillNanos;
+
+  public TokenBucket(double permitsPerSecond, int burst) {
+    this(permitsPerSecond, burst, System::nanoTime);
+  }
+
+  TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+    if (permitsPerSecond <= 0 || burst < 1) {
+      throw new IllegalArgumentException(
+          "Rate limit must have a positive rate and a burst of at least 1");
+    }
+    this.nanoClock = nanoClock;
+    this.burst = burst;
+    this.nanosPerPermit = NANOS_PER_SECOND / permitsPerSecond;
+    this.storedPermits = burst;
+    this.lastRefillNanos = nanoClock.getAsLong();
+  }
+
+  /** Takes a permit, returning the number of nanoseconds the caller must wait before using it. */
+  public synchronized long reserve() {
+    refill(nanoClock.getAsLong());
+    storedPermits -= 1;
+    if (storedPermits >= 0) {
+      return 0;
+    }
+    return (long) Math.ceil(-storedPermits * nanosPerPermit);
+  }
+
+  /**
+   * Takes a permit only if the caller would have to wait no longer than the maximum wait given,
+   * returning how long to wait, or -1 without taking a permit if the wait would be longer.
+   */
+  public synchronized long tryReserve(long maxWaitNanos) {
+    refill(nanoClock.getAsLong());
+    long waitNanos =
+        storedPermits >= 1 ? 0 : (long) Math.ceil((1 - storedPermits) * nanosPerPermit);
+    if (waitNanos > maxWaitNanos) {
+      return -1;
+    }
+    storedPermits -= 1;
+    return waitNanos;
+  }
+
+  public synchronized double getPermitsPerSecond() {
+    return NANOS_PER_SECOND / nanosPerPermit;
+  }
+
+  public synchronized void setPermitsPerSecond(double permitsPerSecond) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate limit must have a positive rate");
+    }
+    refill(nanoClock.getAsLong());
+    nanosPerPermit = NANOS_PER_SECOND / permitsPerSecond;
+  }
+
+  private void refill(long nowNanos) {
+    if (nowNanos > lastRefillNanos) {
+      storedPermits =
+          Math.min(burst, storedPermits + (nowNanos - lastRefillNanos) / nanosPerPermit);
+      lastRefillNanos = nowNanos;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "casebatching")
+public class CaseBatchingProperties {
+  private boolean enabled;
+  private int maxBatchSize;
+  private Duration maxWait;
+  private int dispatchThreads;
+}
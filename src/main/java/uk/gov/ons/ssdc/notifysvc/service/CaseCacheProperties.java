@@ -0,0 +1,15 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "casecache")
+public class CaseCacheProperties {
+  private boolean enabled;
+  private long maximumSize;
+  private Duration expireAfterWrite;
+}
@@ -0,0 +1,351 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
+import uk.gov.ons.ssdc.notifysvc.model.repository.KeyedCasePersonalisationFields;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
+
+@Component
+public class CaseDataLookup {
+  private final CaseRepository caseRepository;
+  private final CaseBatchingProperties caseBatchingProperties;
+  private final CaseCacheProperties caseCacheProperties;
+  private final Cache<UUID, CachedCase> caseCache;
+  private final ScheduledExecutorService dispatchScheduler;
+  private final MicroBatcher<UUID, Boolean> caseExistsBatcher;
+  private final MicroBatcher<CaseFieldsRequest, CasePersonalisationFields> caseFieldsBatcher;
+  private final TransactionTemplate primaryReads;
+
+  @Autowired
+  public CaseDataLookup(
+      CaseRepository caseRepository,
+      CaseBatchingProperties caseBatchingProperties,
+      CaseCacheProperties caseCacheProperties,
+      MeterRegistry meterRegistry,
+      PlatformTransactionManager transactionManager,
+      @Value("${replicadatasource.enabled}") boolean replicaEnabled) {
+    this(
+        caseRepository,
+        caseBatchingProperties,
+        caseCacheProperties,
+        meterRegistry,
+        replicaEnabled ? new TransactionTemplate(transactionManager) : null,
+        Executors.newScheduledThreadPool(
+            Math.max(caseBatchingProperties.getDispatchThreads(), 1),
+            daemonThreadFactory("case-lookup-batch-")));
+  }
+
+  CaseDataLookup(
+      CaseRepository caseRepository,
+      CaseBatchingProperties caseBatchingProperties,
+      CaseCacheProperties caseCacheProperties,
+      MeterRegistry meterRegistry,
+      TransactionTemplate primaryReads,
+      ScheduledExecutorService dispatchScheduler) {
+    this.caseRepository = caseRepository;
+    this.primaryReads = primaryReads;
+    this.caseBatchingProperties = caseBatchingProperties;
+    this.caseCacheProperties = caseCacheProperties;
+    this.dispatchScheduler = dispatchScheduler;
+
+    // Held on the heap only, the cache is never written to disk or exposed by the caches endpoint
+    caseCache =
+        Caffeine.newBuilder()
+            .maximumSize(caseCacheProperties.getMaximumSize())
+            .expireAfterWrite(caseCacheProperties.getExpireAfterWrite())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, caseCache, "caseData");
+
+    DistributionSummary existsBatchSizes = batchSizeSummary("exists", meterRegistry);
+    DistributionSummary fieldsBatchSizes = batchSizeSummary("personalisation", meterRegistry);
+    caseExistsBatcher =
+        new MicroBatcher<>(
+            caseBatchingProperties.getMaxBatchSize(),
+            caseBatchingProperties.getMaxWait(),
+            this::loadExistingCases,
+            dispatchScheduler,
+            existsBatchSizes::record);
+    caseFieldsBatcher =
+        new MicroBatcher<>(
+            caseBatchingProperties.getMaxBatchSize(),
+            caseBatchingProperties.getMaxWait(),
+            this::loadCaseFields,
+            dispatchScheduler,
+            fieldsBatchSizes::record);
+  }
+
+  public boolean caseExists(UUID caseId, PersonalisationPlan personalisationPlan) {
+    if (caseCacheProperties.isEnabled()) {
+      // Read the template's fields now, so the enriched stage finds them cached
+      return findPersonalisationFields(caseId, personalisationPlan).isPresent();
+    }
+
+    boolean exists;
+    if (caseBatchingProperties.isEnabled()) {
+      exists = await(caseExistsBatcher.load(caseId)) != null;
+    } else {
+      exists = caseRepository.existsById(caseId);
+    }
+    return exists || isOnPrimary(() -> caseRepository.existsById(caseId));
+  }
+
+  public Optional<CasePersonalisationFields> findPersonalisationFields(
+      UUID caseId, PersonalisationPlan personalisationPlan) {
+    CachedCase cachedCase = findCachedCase(caseId);
+    if (cachedCase != null) {
+      CachedCaseFields cachedFields =
+          cachedCase.personalisationFields.get(CaseFieldsKey.of(personalisationPlan));
+      if (cachedFields != null) {
+        return Optional.of(cachedFields);
+      }
+    }
+
+    Optional<CasePersonalisationFields> caseFields;
+    if (caseBatchingProperties.isEnabled()) {
+      caseFields =
+          Optional.ofNullable(
+              await(caseFieldsBatcher.load(new CaseFieldsRequest(caseId, personalisationPlan))));
+    } else {
+      caseFields =
+          caseRepository.findPersonalisationFields(
+              caseId, personalisationPlan.getSampleKeys(), personalisationPlan.getSensitiveKeys());
+    }
+    if (caseFields.isEmpty()) {
+      caseFields =
+          findOnPrimary(
+              () ->
+                  caseRepository.findPersonalisationFields(
+                      caseId,
+                      personalisationPlan.getSampleKeys(),
+                      personalisationPlan.getSensitiveKeys()));
+    }
+
+    caseFields.ifPresent(fields -> cacheCaseFields(caseId, personalisationPlan, null, fields));
+    return caseFields;
+  }
+
+  public Optional<FulfilmentCaseFields> findFulfilmentCase(
+      UUID caseId, PersonalisationPlan personalisationPlan) {
+    CachedCase cachedCase = findCachedCase(caseId);
+    if (cachedCase != null && cachedCase.surveyId != null) {
+      CachedCaseFields cachedFields =
+          cachedCase.personalisationFields.get(CaseFieldsKey.of(personalisationPlan));
+      if (cachedFields != null) {
+        return Optional.of(cachedFields.withSurveyId(cachedCase.surveyId));
+      }
+    }
+
+    Supplier<Optional<FulfilmentCaseFields>> lookup =
+        () ->
+            caseRepository.findFulfilmentCase(
+                caseId,
+                personalisationPlan.getSampleKeys(),
+                personalisationPlan.getSensitiveKeys());
+    Optional<FulfilmentCaseFields> caseFields = lookup.get();
+    if (caseFields.isEmpty()) {
+      caseFields = findOnPrimary(lookup);
+    }
+    caseFields.ifPresent(
+        fields -> cacheCaseFields(caseId, personalisationPlan, fields.getSurveyId(), fields));
+    return caseFields;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    dispatchScheduler.shutdownNow();
+  }
+
+  // The replica can lag behind the primary, so a case it hasn't got yet may only just have been
+  // created. Running the lookup in a read-write transaction sends it to the primary instead
+  private boolean isOnPrimary(Supplier<Boolean> lookup) {
+    return primaryReads != null
+        && Boolean.TRUE.equals(primaryReads.execute(status -> lookup.get()));
+  }
+
+  private <T> Optional<T> findOnPrimary(Supplier<Optional<T>> lookup) {
+    if (primaryReads == null) {
+      return Optional.empty();
+    }
+    return primaryReads.execute(status -> lookup.get());
+  }
+
+  private CachedCase findCachedCase(UUID caseId) {
+    if (!caseCacheProperties.isEnabled()) {
+      return null;
+    }
+    return caseCache.getIfPresent(caseId);
+  }
+
+  private void cacheCaseFields(
+      UUID caseId,
+      PersonalisationPlan personalisationPlan,
+      UUID surveyId,
+      CasePersonalisationFields caseFields) {
+    if (!caseCacheProperties.isEnabled()) {
+      return;
+    }
+
+    CachedCase cachedCase = caseCache.get(caseId, id -> new CachedCase());
+    if (surveyId != null) {
+      cachedCase.surveyId = surveyId;
+    }
+    cachedCase.personalisationFields.put(
+        CaseFieldsKey.of(personalisationPlan),
+        new CachedCaseFields(null, caseFields.getSample(), caseFields.getSampleSensitive()));
+  }
+
+  private Map<UUID, Boolean> loadExistingCases(Set<UUID> caseIds) {
+    Map<UUID, Boolean> existingCases = new HashMap<>();
+    for (UUID caseId : caseRepository.findExistingIds(caseIds)) {
+      existingCases.put(caseId, Boolean.TRUE);
+    }
+    return existingCases;
+  }
+
+  private Map<CaseFieldsRequest, CasePersonalisationFields> loadCaseFields(
+      Set<CaseFieldsRequest> requests) {
+    // Each template picks out different sample keys, so it's one query per template in the batch
+    Map<PersonalisationPlan, List<UUID>> caseIdsByPlan = new HashMap<>();
+    for (CaseFieldsRequest request : requests) {
+      caseIdsByPlan
+          .computeIfAbsent(request.personalisationPlan(), plan -> new ArrayList<>())
+          .add(request.caseId());
+    }
+
+    Map<CaseFieldsRequest, CasePersonalisationFields> caseFields = new HashMap<>();
+    caseIdsByPlan.forEach(
+        (plan, caseIds) -> {
+          for (KeyedCasePersonalisationFields fields :
+              caseRepository.findPersonalisationFieldsByIds(
+                  caseIds, plan.getSampleKeys(), plan.getSensitiveKeys())) {
+            caseFields.put(new CaseFieldsRequest(fields.getCaseId(), plan), fields);
+          }
+        });
+    return caseFields;
+  }
+
+  private static <V> V await(CompletableFuture<V> future) {
+    Throwable failure;
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted waiting for batched case lookup", e);
+    } catch (ExecutionException e) {
+      failure = e.getCause();
+    }
+
+    // Surface the batch query's own exception, as if this lookup had run the query itself
+    if (failure instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    throw new RuntimeException("Batched case lookup failed", failure);
+  }
+
+  private static DistributionSummary batchSizeSummary(String lookup, MeterRegistry meterRegistry) {
+    return DistributionSummary.builder("case.lookup.batch.size")
+        .description("Case lookups resolved together in one query")
+        .tag("lookup", lookup)
+        .register(meterRegistry);
+  }
+
+  private static ThreadFactory daemonThreadFactory(String namePrefix) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private record CaseFieldsRequest(UUID caseId, PersonalisationPlan personalisationPlan) {}
+
+  // The sample keys a template reads, which is all that decides the values cached for it. Any
+  // template reading the same keys shares them, whichever plan instance it arrives with
+  private record CaseFieldsKey(List<String> sampleKeys, List<String> sensitiveKeys) {
+    private static CaseFieldsKey of(PersonalisationPlan personalisationPlan) {
+      return new CaseFieldsKey(
+          List.of(personalisationPlan.getSampleKeys()),
+          List.of(personalisationPlan.getSensitiveKeys()));
+    }
+  }
+
+  // A case found, with the sample values read for each template since it was cached. Only cases
+  // found are cached, so a newly created case is never reported missing. The entry expires as a
+  // whole, so no values outlive the cache TTL from when the case was first read
+  private static final class CachedCase {
+    private final Map<CaseFieldsKey, CachedCaseFields> personalisationFields =
+        new ConcurrentHashMap<>();
+    private volatile UUID surveyId;
+
+    @Override
+    public String toString() {
+      return "CachedCase[templates=" + personalisationFields.size() + "]";
+    }
+  }
+
+  private static final class CachedCaseFields implements FulfilmentCaseFields {
+    private final UUID surveyId;
+    private final String[] sample;
+    private final String[] sampleSensitive;
+
+    private CachedCaseFields(UUID surveyId, String[] sample, String[] sampleSensitive) {
+      this.surveyId = surveyId;
+      this.sample = sample;
+      this.sampleSensitive = sampleSensitive;
+    }
+
+    private CachedCaseFields withSurveyId(UUID surveyId) {
+      return new CachedCaseFields(surveyId, sample, sampleSensitive);
+    }
+
+    @Override
+    public UUID getSurveyId() {
+      return surveyId;
+    }
+
+    @Override
+    public String[] getSample() {
+      return sample.clone();
+    }
+
+    @Override
+    public String[] getSampleSensitive() {
+      return sampleSensitive.clone();
+    }
+
+    // Sample values must never reach the logs
+    @Override
+    public String toString() {
+      return "CachedCaseFields[surveyId=" + surveyId + ", values redacted]";
+    }
+  }
+}
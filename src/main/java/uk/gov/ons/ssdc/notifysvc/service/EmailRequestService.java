@@ -7,18 +7,18 @@ import java.time.OffsetDateTime;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
 import uk.gov.ons.ssdc.common.validation.EmailRule;
-import uk.gov.ons.ssdc.notifysvc.client.UacQidServiceClient;
+import uk.gov.ons.ssdc.notifysvc.client.UacQidPairPool;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailConfirmation;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveyEmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
 import uk.gov.ons.ssdc.notifysvc.utils.Constants;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
@@ -28,31 +28,34 @@ public class EmailRequestService {
   @Value("${queueconfig.email-confirmation-topic}")
   private String emailConfirmationTopic;
 
-  private final UacQidServiceClient uacQidServiceClient;
-  private final FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository;
+  private final UacQidPairPool uacQidPairPool;
+  private final FulfilmentAllowList fulfilmentAllowList;
   private final PubSubHelper pubSubHelper;
+  private final OutboxEventStore outboxEventStore;
 
   private final EmailRule emailValidationRule = new EmailRule(true);
 
   public EmailRequestService(
-      UacQidServiceClient uacQidServiceClient,
-      FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository,
-      PubSubHelper pubSubHelper) {
-    this.uacQidServiceClient = uacQidServiceClient;
-    this.fulfilmentSurveyEmailTemplateRepository = fulfilmentSurveyEmailTemplateRepository;
+      UacQidPairPool uacQidPairPool,
+      FulfilmentAllowList fulfilmentAllowList,
+      PubSubHelper pubSubHelper,
+      OutboxEventStore outboxEventStore) {
+    this.uacQidPairPool = uacQidPairPool;
+    this.fulfilmentAllowList = fulfilmentAllowList;
     this.pubSubHelper = pubSubHelper;
+    this.outboxEventStore = outboxEventStore;
   }
 
   public Optional<UacQidCreatedPayloadDTO> fetchNewUacQidPairIfRequired(String[] emailTemplate) {
     if (doesTemplateRequireNewUacQid(emailTemplate)) {
-      return Optional.of(uacQidServiceClient.generateUacQid());
+      return Optional.of(uacQidPairPool.getUacQidPair());
     }
     return Optional.empty();
   }
 
-  public boolean isEmailTemplateAllowedOnSurvey(EmailTemplate emailTemplate, Survey survey) {
-    return fulfilmentSurveyEmailTemplateRepository.existsByEmailTemplateAndSurvey(
-        emailTemplate, survey);
+  public boolean isEmailTemplateAllowedOnSurvey(EmailTemplate emailTemplate, UUID surveyId) {
+    return fulfilmentAllowList.isEmailTemplateAllowedOnSurvey(
+        surveyId, emailTemplate.getPackCode());
   }
 
   public Optional<String> validateEmailAddress(String emailAddress) {
@@ -70,6 +73,41 @@ public class EmailRequestService {
       String channel,
       UUID correlationId,
       String originatingUser) {
+    EventDTO emailConfirmationEvent =
+        buildEmailConfirmationEvent(
+            caseId,
+            packCode,
+            uacMetadata,
+            personalisation,
+            newUacQidPair,
+            scheduled,
+            source,
+            channel,
+            correlationId,
+            originatingUser);
+
+    if (outboxEventStore.isEnabled()) {
+      outboxEventStore.append(emailConfirmationEvent);
+    } else {
+      pubSubHelper.publishAndConfirm(emailConfirmationTopic, emailConfirmationEvent);
+    }
+  }
+
+  public CompletableFuture<String> sendEmailConfirmationAsync(EventDTO emailConfirmationEvent) {
+    return pubSubHelper.publishAsync(emailConfirmationTopic, emailConfirmationEvent);
+  }
+
+  public EventDTO buildEmailConfirmationEvent(
+      UUID caseId,
+      String packCode,
+      Object uacMetadata,
+      Map<String, String> personalisation,
+      Optional<UacQidCreatedPayloadDTO> newUacQidPair,
+      boolean scheduled,
+      String source,
+      String channel,
+      UUID correlationId,
+      String originatingUser) {
     EmailConfirmation emailConfirmation = new EmailConfirmation();
     emailConfirmation.setCaseId(caseId);
     emailConfirmation.setPackCode(packCode);
@@ -97,6 +135,6 @@ public class EmailRequestService {
     enrichedEmailFulfilmentEvent.setPayload(new PayloadDTO());
     enrichedEmailFulfilmentEvent.getPayload().setEmailConfirmation(emailConfirmation);
 
-    pubSubHelper.publishAndConfirm(emailConfirmationTopic, enrichedEmailFulfilmentEvent);
+    return enrichedEmailFulfilmentEvent;
   }
 }
@@ -0,0 +1,98 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveyEmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveySmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.SurveyPackCode;
+
+@Component
+public class FulfilmentAllowList {
+  private static final Logger log = LoggerFactory.getLogger(FulfilmentAllowList.class);
+
+  private final FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository;
+  private final FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository;
+
+  private volatile Set<AllowListKey> smsAllowList = ConcurrentHashMap.newKeySet();
+  private volatile Set<AllowListKey> emailAllowList = ConcurrentHashMap.newKeySet();
+
+  public FulfilmentAllowList(
+      FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository,
+      FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository) {
+    this.fulfilmentSurveySmsTemplateRepository = fulfilmentSurveySmsTemplateRepository;
+    this.fulfilmentSurveyEmailTemplateRepository = fulfilmentSurveyEmailTemplateRepository;
+  }
+
+  public boolean isSmsTemplateAllowedOnSurvey(UUID surveyId, String packCode) {
+    AllowListKey key = new AllowListKey(surveyId, packCode);
+    if (smsAllowList.contains(key)) {
+      return true;
+    }
+
+    // Templates allowed since the last refresh are not in the index yet, so confirm any miss
+    if (fulfilmentSurveySmsTemplateRepository.existsBySurveyIdAndSmsTemplatePackCode(
+        surveyId, packCode)) {
+      smsAllowList.add(key);
+      return true;
+    }
+    return false;
+  }
+
+  public boolean isEmailTemplateAllowedOnSurvey(UUID surveyId, String packCode) {
+    AllowListKey key = new AllowListKey(surveyId, packCode);
+    if (emailAllowList.contains(key)) {
+      return true;
+    }
+
+    if (fulfilmentSurveyEmailTemplateRepository.existsBySurveyIdAndEmailTemplatePackCode(
+        surveyId, packCode)) {
+      emailAllowList.add(key);
+      return true;
+    }
+    return false;
+  }
+
+  // The next check for an evicted pair goes to the database, so it's allowed again if still there
+  public void evictSmsTemplate(UUID surveyId, String packCode) {
+    smsAllowList.remove(new AllowListKey(surveyId, packCode));
+  }
+
+  public void evictEmailTemplate(UUID surveyId, String packCode) {
+    emailAllowList.remove(new AllowListKey(surveyId, packCode));
+  }
+
+  @Scheduled(fixedDelayString = "${fulfilmentallowlist.refresh-interval-millis}")
+  public void refresh() {
+    try {
+      smsAllowList = toAllowList(fulfilmentSurveySmsTemplateRepository.findAllSurveyPackCodes());
+      emailAllowList =
+          toAllowList(fulfilmentSurveyEmailTemplateRepository.findAllSurveyPackCodes());
+    } catch (RuntimeException e) {
+      // Keep answering from the previous index, misses still fall back to the database
+      log.atWarn().setMessage("Failed to refresh fulfilment allow list").setCause(e).log();
+      return;
+    }
+
+    log.atDebug()
+        .setMessage("Refreshed fulfilment allow list")
+        .addKeyValue("smsTemplates", smsAllowList.size())
+        .addKeyValue("emailTemplates", emailAllowList.size())
+        .log();
+  }
+
+  private static Set<AllowListKey> toAllowList(List<SurveyPackCode> surveyPackCodes) {
+    Set<AllowListKey> allowList = ConcurrentHashMap.newKeySet(surveyPackCodes.size());
+    for (SurveyPackCode surveyPackCode : surveyPackCodes) {
+      allowList.add(new AllowListKey(surveyPackCode.getSurveyId(), surveyPackCode.getPackCode()));
+    }
+    return allowList;
+  }
+
+  private record AllowListKey(UUID surveyId, String packCode) {}
+}
@@ -0,0 +1,109 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collects single key lookups made concurrently by message handler threads and resolves them with
+ * one bulk load, once either the batch is full or the first key in it has waited long enough. Each
+ * caller gets its own future, completed with the loaded value or null when the key wasn't found, so
+ * every message is still handled, acked and nacked on its own.
+ */
+class MicroBatcher<K, V> {
+  private final int maxBatchSize;
+  private final Duration maxWait;
+  private final Function<Set<K>, Map<K, V>> batchLoader;
+  private final ScheduledExecutorService scheduler;
+  private final Consumer<Integer> batchSizeRecorder;
+
+  private Map<K, CompletableFuture<V>> pending = new HashMap<>();
+  private ScheduledFuture<?> pendingFlush;
+
+  MicroBatcher(
+      int maxBatchSize,
+      Duration maxWait,
+      Function<Set<K>, Map<K, V>> batchLoader,
+      ScheduledExecutorService scheduler,
+      Consumer<Integer> batchSizeRecorder) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxWait = maxWait;
+    this.batchLoader = batchLoader;
+    this.scheduler = scheduler;
+    this.batchSizeRecorder = batchSizeRecorder;
+  }
+
+  CompletableFuture<V> load(K key) {
+    CompletableFuture<V> future;
+    Map<K, CompletableFuture<V>> fullBatch = null;
+    Map<K, CompletableFuture<V>> rejectedBatch = null;
+    RejectedExecutionException rejection = null;
+
+    synchronized (this) {
+      future = pending.get(key);
+      if (future == null) {
+        future = new CompletableFuture<>();
+        pending.put(key, future);
+
+        if (pending.size() == 1) {
+          Map<K, CompletableFuture<V>> batch = pending;
+          try {
+            pendingFlush =
+                scheduler.schedule(
+                    () -> dispatchIfPending(batch), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+          } catch (RejectedExecutionException e) {
+            // Shutting down, so nothing would ever load this batch
+            rejectedBatch = pending;
+            rejection = e;
+            pending = new HashMap<>();
+          }
+        }
+        if (pending.size() >= maxBatchSize) {
+          fullBatch = pending;
+          pending = new HashMap<>();
+          pendingFlush.cancel(false);
+        }
+      }
+    }
+
+    if (rejectedBatch != null) {
+      for (CompletableFuture<V> rejected : rejectedBatch.values()) {
+        rejected.completeExceptionally(rejection);
+      }
+    }
+    // A full batch is loaded straight away on the thread that filled it
+    if (fullBatch != null) {
+      dispatch(fullBatch);
+    }
+    return future;
+  }
+
+  private void dispatchIfPending(Map<K, CompletableFuture<V>> batch) {
+    synchronized (this) {
+      if (pending != batch) {
+        // Already dispatched when it filled up
+        return;
+      }
+      pending = new HashMap<>();
+    }
+    dispatch(batch);
+  }
+
+  private void dispatch(Map<K, CompletableFuture<V>> batch) {
+    batchSizeRecorder.accept(batch.size());
+    try {
+      Map<K, V> loaded = batchLoader.apply(batch.keySet());
+      batch.forEach((key, future) -> future.complete(loaded.get(key)));
+    } catch (RuntimeException e) {
+      batch.values().forEach(future -> future.completeExceptionally(e));
+    }
+  }
+}
@@ -7,17 +7,17 @@ import java.time.OffsetDateTime;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
-import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.client.UacQidServiceClient;
+import uk.gov.ons.ssdc.notifysvc.client.UacQidPairPool;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsConfirmation;
-import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveySmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
 import uk.gov.ons.ssdc.notifysvc.utils.Constants;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
@@ -27,28 +27,31 @@ public class SmsRequestService {
   @Value("${queueconfig.sms-confirmation-topic}")
   private String smsConfirmationTopic;
 
-  private final UacQidServiceClient uacQidServiceClient;
-  private final FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository;
+  private final UacQidPairPool uacQidPairPool;
+  private final FulfilmentAllowList fulfilmentAllowList;
   private final PubSubHelper pubSubHelper;
+  private final OutboxEventStore outboxEventStore;
 
   public SmsRequestService(
-      UacQidServiceClient uacQidServiceClient,
-      FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository,
-      PubSubHelper pubSubHelper) {
-    this.uacQidServiceClient = uacQidServiceClient;
-    this.fulfilmentSurveySmsTemplateRepository = fulfilmentSurveySmsTemplateRepository;
+      UacQidPairPool uacQidPairPool,
+      FulfilmentAllowList fulfilmentAllowList,
+      PubSubHelper pubSubHelper,
+      OutboxEventStore outboxEventStore) {
+    this.uacQidPairPool = uacQidPairPool;
+    this.fulfilmentAllowList = fulfilmentAllowList;
     this.pubSubHelper = pubSubHelper;
+    this.outboxEventStore = outboxEventStore;
   }
 
   public Optional<UacQidCreatedPayloadDTO> fetchNewUacQidPairIfRequired(String[] smsTemplate) {
     if (doesTemplateRequireNewUacQid(smsTemplate)) {
-      return Optional.of(uacQidServiceClient.generateUacQid());
+      return Optional.of(uacQidPairPool.getUacQidPair());
     }
     return Optional.empty();
   }
 
-  public boolean isSmsTemplateAllowedOnSurvey(SmsTemplate smsTemplate, Survey survey) {
-    return fulfilmentSurveySmsTemplateRepository.existsBySmsTemplateAndSurvey(smsTemplate, survey);
+  public boolean isSmsTemplateAllowedOnSurvey(SmsTemplate smsTemplate, UUID surveyId) {
+    return fulfilmentAllowList.isSmsTemplateAllowedOnSurvey(surveyId, smsTemplate.getPackCode());
   }
 
   public boolean validatePhoneNumber(String phoneNumber) {
@@ -70,6 +73,41 @@ public class SmsRequestService {
       String channel,
       UUID correlationId,
       String originatingUser) {
+    EventDTO smsConfirmationEvent =
+        buildSmsConfirmationEvent(
+            caseId,
+            packCode,
+            uacMetadata,
+            personalisation,
+            newUacQidPair,
+            scheduled,
+            source,
+            channel,
+            correlationId,
+            originatingUser);
+
+    if (outboxEventStore.isEnabled()) {
+      outboxEventStore.append(smsConfirmationEvent);
+    } else {
+      pubSubHelper.publishAndConfirm(smsConfirmationTopic, smsConfirmationEvent);
+    }
+  }
+
+  public CompletableFuture<String> sendSmsConfirmationAsync(EventDTO smsConfirmationEvent) {
+    return pubSubHelper.publishAsync(smsConfirmationTopic, smsConfirmationEvent);
+  }
+
+  public EventDTO buildSmsConfirmationEvent(
+      UUID caseId,
+      String packCode,
+      Object uacMetadata,
+      Map<String, String> personalisation,
+      Optional<UacQidCreatedPayloadDTO> newUacQidPair,
+      boolean scheduled,
+      String source,
+      String channel,
+      UUID correlationId,
+      String originatingUser) {
     SmsConfirmation smsConfirmation = new SmsConfirmation();
     smsConfirmation.setCaseId(caseId);
     smsConfirmation.setPackCode(packCode);
@@ -97,6 +135,6 @@ public class SmsRequestService {
     enrichedSmsFulfilmentEvent.setPayload(new PayloadDTO());
     enrichedSmsFulfilmentEvent.getPayload().setSmsConfirmation(smsConfirmation);
 
-    pubSubHelper.publishAndConfirm(smsConfirmationTopic, enrichedSmsFulfilmentEvent);
+    return enrichedSmsFulfilmentEvent;
   }
 }
@@ -0,0 +1,67 @@
+package uk.gov.ons.ssdc.notifysvc.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.io.InputStream;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
+
+/**
+ * The one ObjectMapper all the service's JSON goes through, events and otherwise. Readers and
+ * writers for events are built once for each type up front, so no per call type lookups are made,
+ * and Jackson recycles the output buffers between writes on the same thread. Blackbird swaps
+ * reflection for generated accessors when binding the DTOs.
+ */
+public class EventCodec {
+  private static final ObjectMapper objectMapper =
+      ObjectMapperFactory.objectMapper().registerModule(new BlackbirdModule());
+  private static final ObjectWriter eventWriter = objectMapper.writerFor(EventDTO.class);
+  private static final ObjectReader headerReader = objectMapper.readerFor(EventHeaderDTO.class);
+
+  public static byte[] writeEventAsBytes(EventDTO event) {
+    try {
+      return eventWriter.writeValueAsBytes(event);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("Error mapping event to JSON", e);
+    }
+  }
+
+  public static String writeEventAsString(EventDTO event) {
+    try {
+      return eventWriter.writeValueAsString(event);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("Error mapping event to JSON", e);
+    }
+  }
+
+  public static byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(value);
+  }
+
+  public static <T> T readValue(String json, Class<T> type) throws JsonProcessingException {
+    return objectMapper.readValue(json, type);
+  }
+
+  public static <T> T readValue(InputStream json, Class<T> type) throws IOException {
+    return objectMapper.readValue(json, type);
+  }
+
+  static JsonParser createParser(ByteString bytes) throws IOException {
+    // Reads straight from the ByteString's own buffers, rather than from a copy of them
+    return objectMapper.createParser(bytes.newInput());
+  }
+
+  static EventHeaderDTO readHeader(JsonParser parser) throws IOException {
+    return headerReader.readValue(parser);
+  }
+
+  static ObjectReader readerFor(Class<?> type) {
+    return objectMapper.readerFor(type);
+  }
+}
@@ -1,22 +1,65 @@
 package uk.gov.ons.ssdc.notifysvc.utils;
 
-import jakarta.xml.bind.DatatypeConverter;
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
 
 public class HashHelper {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // A digest is not thread safe, so each hash clones its own from one looked up at startup. That
+  // skips the provider lookup, and works as well on virtual threads, which are never reused
+  private static final Supplier<MessageDigest> SHA_256 = clonesOf(newSha256Digest());
+
   public static String hash(String stringToHash) {
     return hash(stringToHash.getBytes(StandardCharsets.UTF_8));
   }
 
   public static String hash(byte[] bytesToHash) {
-    byte[] hash;
+    return toHex(SHA_256.get().digest(bytesToHash));
+  }
+
+  /** Hashes the remaining bytes of the buffer, leaving its position where it was. */
+  public static String hash(ByteBuffer bytesToHash) {
+    MessageDigest digest = SHA_256.get();
+    digest.update(bytesToHash.duplicate());
+    return toHex(digest.digest());
+  }
+
+  public static String hash(ByteString bytesToHash) {
+    // Digests the ByteString's own buffers in place, without copying them out first
+    MessageDigest digest = SHA_256.get();
+    for (ByteBuffer buffer : bytesToHash.asReadOnlyByteBufferList()) {
+      digest.update(buffer);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(hex);
+  }
+
+  private static Supplier<MessageDigest> clonesOf(MessageDigest prototype) {
+    return () -> {
+      try {
+        return (MessageDigest) prototype.clone();
+      } catch (CloneNotSupportedException e) {
+        return newSha256Digest();
+      }
+    };
+  }
 
+  private static MessageDigest newSha256Digest() {
     try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      hash = digest.digest(bytesToHash);
-      return DatatypeConverter.printHexBinary(hash).toLowerCase();
+      return MessageDigest.getInstance("SHA-256");
     } catch (NoSuchAlgorithmException e) {
       throw new RuntimeException("Could not initialise hashing", e);
     }
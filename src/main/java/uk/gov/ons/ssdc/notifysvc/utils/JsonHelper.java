@@ -2,29 +2,137 @@ package uk.gov.ons.ssdc.notifysvc.utils;
 
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.ALLOWED_INBOUND_EVENT_SCHEMA_VERSIONS;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequest;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequest;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
 
 public class JsonHelper {
-  private static final ObjectMapper objectMapper = ObjectMapperFactory.objectMapper();
+  private static final Map<Class<?>, PayloadField<?>> INBOUND_PAYLOAD_FIELDS =
+      Map.of(
+          SmsRequest.class,
+          new PayloadField<>("smsRequest", SmsRequest.class, PayloadDTO::setSmsRequest),
+          SmsRequestEnriched.class,
+          new PayloadField<>(
+              "smsRequestEnriched", SmsRequestEnriched.class, PayloadDTO::setSmsRequestEnriched),
+          EmailRequest.class,
+          new PayloadField<>("emailRequest", EmailRequest.class, PayloadDTO::setEmailRequest),
+          EmailRequestEnriched.class,
+          new PayloadField<>(
+              "emailRequestEnriched",
+              EmailRequestEnriched.class,
+              PayloadDTO::setEmailRequestEnriched));
 
-  public static EventDTO convertJsonBytesToEvent(byte[] bytes) {
-    EventDTO event;
-    try {
-      event = objectMapper.readValue(bytes, EventDTO.class);
+  /**
+   * Reads an inbound event, checking the header version before anything in the payload is read.
+   * Only the payload type given is bound, any other payload types in the message are skipped over.
+   */
+  public static EventDTO convertJsonBytesToEvent(ByteString bytes, Class<?> payloadType) {
+    PayloadField<?> payloadField = inboundPayloadField(payloadType);
+    try (JsonParser parser = EventCodec.createParser(bytes)) {
+      return readEvent(parser, payloadField);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+  }
+
+  private static PayloadField<?> inboundPayloadField(Class<?> payloadType) {
+    PayloadField<?> payloadField = INBOUND_PAYLOAD_FIELDS.get(payloadType);
+    if (payloadField == null) {
+      throw new IllegalArgumentException("Not an inbound event payload type: " + payloadType);
+    }
+    return payloadField;
+  }
+
+  private static EventDTO readEvent(JsonParser parser, PayloadField<?> payloadField)
+      throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new RuntimeException("Event is not a JSON object");
+    }
+
+    EventHeaderDTO header = null;
+    PayloadDTO payload = null;
+    TokenBuffer payloadAheadOfHeader = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.currentName();
+      parser.nextToken();
+      if ("header".equals(fieldName)) {
+        header = EventCodec.readHeader(parser);
+        checkVersion(header);
+      } else if ("payload".equals(fieldName) && header == null) {
+        // Held back unread until the header has been checked
+        payloadAheadOfHeader = new TokenBuffer(parser);
+        payloadAheadOfHeader.copyCurrentStructure(parser);
+      } else if ("payload".equals(fieldName)) {
+        payload = readPayload(parser, payloadField);
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    if (header == null) {
+      throw new RuntimeException("Event has no header");
+    }
+    if (payloadAheadOfHeader != null) {
+      try (JsonParser payloadParser = payloadAheadOfHeader.asParser()) {
+        payloadParser.nextToken();
+        payload = readPayload(payloadParser, payloadField);
+      }
+    }
 
-    if (!ALLOWED_INBOUND_EVENT_SCHEMA_VERSIONS.contains((event.getHeader().getVersion()))) {
+    return new EventDTO(header, payload);
+  }
+
+  private static void checkVersion(EventHeaderDTO header) {
+    if (header == null
+        || header.getVersion() == null
+        || !ALLOWED_INBOUND_EVENT_SCHEMA_VERSIONS.contains(header.getVersion())) {
       throw new RuntimeException(
           String.format(
               "Unsupported message version. Got %s but RM only supports %s",
-              event.getHeader().getVersion(),
+              header == null ? null : header.getVersion(),
               String.join(", ", ALLOWED_INBOUND_EVENT_SCHEMA_VERSIONS)));
     }
+  }
+
+  private static PayloadDTO readPayload(JsonParser parser, PayloadField<?> payloadField)
+      throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
 
-    return event;
+    PayloadDTO payload = new PayloadDTO();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.currentName();
+      parser.nextToken();
+      if (payloadField.name().equals(fieldName)) {
+        payloadField.bind(parser, payload);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return payload;
+  }
+
+  private record PayloadField<T>(
+      String name, ObjectReader reader, BiConsumer<PayloadDTO, T> setter) {
+    PayloadField(String name, Class<T> type, BiConsumer<PayloadDTO, T> setter) {
+      this(name, EventCodec.readerFor(type), setter);
+    }
+
+    void bind(JsonParser parser, PayloadDTO payload) throws IOException {
+      setter.accept(payload, reader.readValue(parser));
+    }
   }
 }
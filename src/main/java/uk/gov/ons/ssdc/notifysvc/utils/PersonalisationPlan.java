@@ -0,0 +1,166 @@
+package uk.gov.ons.ssdc.notifysvc.utils;
+
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_SENSITIVE_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.CollectionUtils;
+import uk.gov.ons.ssdc.common.model.entity.Case;
+
+/**
+ * A template's personalisation fields resolved up front, so building the personalisation for a
+ * message is a single pass over pre-parsed fields with no string matching.
+ */
+public final class PersonalisationPlan {
+  // Plans are keyed on the template's contents, so a reloaded template that hasn't changed finds
+  // the same plan and an edited one gets a new plan
+  private static final Cache<List<String>, PersonalisationPlan> PLANS =
+      Caffeine.newBuilder().maximumSize(1000).build();
+
+  private final Field[] fields;
+  private final String[] sampleKeys;
+  private final String[] sensitiveKeys;
+  private final boolean requiresNewUacQid;
+
+  private PersonalisationPlan(
+      Field[] fields, String[] sampleKeys, String[] sensitiveKeys, boolean requiresNewUacQid) {
+    this.fields = fields;
+    this.sampleKeys = sampleKeys;
+    this.sensitiveKeys = sensitiveKeys;
+    this.requiresNewUacQid = requiresNewUacQid;
+  }
+
+  public static PersonalisationPlan forTemplate(String[] template) {
+    return PLANS.get(List.copyOf(Arrays.asList(template)), key -> compile(template));
+  }
+
+  static PersonalisationPlan compile(String[] template) {
+    Field[] fields = new Field[template.length];
+    Map<String, Integer> sampleKeys = new LinkedHashMap<>();
+    Map<String, Integer> sensitiveKeys = new LinkedHashMap<>();
+    boolean requiresNewUacQid = false;
+
+    for (int i = 0; i < template.length; i++) {
+      String templateItem = template[i];
+
+      if (templateItem.equals(TEMPLATE_UAC_KEY)) {
+        fields[i] = new Field(templateItem, Source.UAC, null, -1);
+        requiresNewUacQid = true;
+
+      } else if (templateItem.equals(TEMPLATE_QID_KEY)) {
+        fields[i] = new Field(templateItem, Source.QID, null, -1);
+        requiresNewUacQid = true;
+
+      } else if (templateItem.startsWith(TEMPLATE_SENSITIVE_PREFIX)) {
+        String key = templateItem.substring(TEMPLATE_SENSITIVE_PREFIX.length());
+        fields[i] =
+            new Field(templateItem, Source.SAMPLE_SENSITIVE, key, indexOf(sensitiveKeys, key));
+
+      } else if (templateItem.startsWith(TEMPLATE_REQUEST_PREFIX)) {
+        fields[i] =
+            new Field(
+                templateItem,
+                Source.REQUEST,
+                templateItem.substring(TEMPLATE_REQUEST_PREFIX.length()),
+                -1);
+
+      } else {
+        fields[i] =
+            new Field(templateItem, Source.SAMPLE, templateItem, indexOf(sampleKeys, templateItem));
+      }
+    }
+
+    return new PersonalisationPlan(
+        fields,
+        sampleKeys.keySet().toArray(new String[0]),
+        sensitiveKeys.keySet().toArray(new String[0]),
+        requiresNewUacQid);
+  }
+
+  public boolean requiresNewUacQid() {
+    return requiresNewUacQid;
+  }
+
+  /** The distinct sample keys the template reads, in the order their values are expected. */
+  public String[] getSampleKeys() {
+    return sampleKeys.clone();
+  }
+
+  /**
+   * The distinct sensitive sample keys the template reads, in the order their values are expected.
+   */
+  public String[] getSensitiveKeys() {
+    return sensitiveKeys.clone();
+  }
+
+  public Map<String, String> buildPersonalisation(
+      Case caze, String uac, String qid, Map<String, String> requestPersonalisation) {
+    Map<String, String> templateValues = CollectionUtils.newHashMap(fields.length);
+
+    for (Field field : fields) {
+      switch (field.source()) {
+        case UAC -> templateValues.put(field.name(), uac);
+        case QID -> templateValues.put(field.name(), qid);
+        case SAMPLE_SENSITIVE -> templateValues.put(
+            field.name(), caze.getSampleSensitive().get(field.key()));
+        case REQUEST -> putRequestValue(templateValues, field, requestPersonalisation);
+        case SAMPLE -> templateValues.put(field.name(), caze.getSample().get(field.key()));
+      }
+    }
+
+    return templateValues;
+  }
+
+  /**
+   * Builds the personalisation from just the sample values the template needs, positioned as {@link
+   * #getSampleKeys()} and {@link #getSensitiveKeys()}, rather than the whole case.
+   */
+  public Map<String, String> buildPersonalisation(
+      String[] sampleValues,
+      String[] sensitiveValues,
+      String uac,
+      String qid,
+      Map<String, String> requestPersonalisation) {
+    Map<String, String> templateValues = CollectionUtils.newHashMap(fields.length);
+
+    for (Field field : fields) {
+      switch (field.source()) {
+        case UAC -> templateValues.put(field.name(), uac);
+        case QID -> templateValues.put(field.name(), qid);
+        case SAMPLE_SENSITIVE -> templateValues.put(field.name(), sensitiveValues[field.index()]);
+        case REQUEST -> putRequestValue(templateValues, field, requestPersonalisation);
+        case SAMPLE -> templateValues.put(field.name(), sampleValues[field.index()]);
+      }
+    }
+
+    return templateValues;
+  }
+
+  private static void putRequestValue(
+      Map<String, String> templateValues, Field field, Map<String, String> requestPersonalisation) {
+    if (requestPersonalisation != null && requestPersonalisation.containsKey(field.key())) {
+      templateValues.put(field.name(), requestPersonalisation.get(field.key()));
+    }
+  }
+
+  private static int indexOf(Map<String, Integer> keys, String key) {
+    return keys.computeIfAbsent(key, k -> keys.size());
+  }
+
+  private enum Source {
+    UAC,
+    QID,
+    SAMPLE_SENSITIVE,
+    REQUEST,
+    SAMPLE
+  }
+
+  private record Field(String name, Source source, String key, int index) {}
+}
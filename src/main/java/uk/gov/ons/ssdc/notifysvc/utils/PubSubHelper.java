@@ -1,8 +1,7 @@
 package uk.gov.ons.ssdc.notifysvc.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import org.springframework.stereotype.Component;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
@@ -11,19 +10,27 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 public class PubSubHelper {
   private final PubSubTemplate pubSubTemplate;
 
-  private static final ObjectMapper objectMapper = ObjectMapperFactory.objectMapper();
-
   public PubSubHelper(PubSubTemplate pubSubTemplate) {
     this.pubSubTemplate = pubSubTemplate;
   }
 
   public void publishAndConfirm(String topic, EventDTO payload) {
+    awaitPublished(publishAsync(topic, payload));
+  }
+
+  public CompletableFuture<String> publishAsync(String topic, EventDTO payload) {
+    return publishAsync(topic, EventCodec.writeEventAsBytes(payload));
+  }
+
+  public CompletableFuture<String> publishAsync(String topic, byte[] payload) {
+    return pubSubTemplate.publish(topic, payload);
+  }
+
+  public void awaitPublished(CompletableFuture<?>... publishes) {
     try {
-      pubSubTemplate.publish(topic, objectMapper.writeValueAsBytes(payload)).get();
+      CompletableFuture.allOf(publishes).get();
     } catch (ExecutionException e) {
       throw new RuntimeException("Error publishing message to PubSub topic ", e);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException("Error mapping event to JSON", e);
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
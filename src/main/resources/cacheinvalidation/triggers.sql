@@ -0,0 +1,61 @@
+-- Announces changes to the tables notify caches on the notify_cache_invalidation channel, so each
+-- notify service pod can evict just the changed templates and allow list entries. To be applied
+-- alongside the casev3 schema, notify does not own these tables
+
+CREATE OR REPLACE FUNCTION casev3.notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    changed_rows jsonb[];
+    changed_row jsonb;
+BEGIN
+    -- No row to go on, the listener reloads everything
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('notify_cache_invalidation', json_build_object('table', TG_TABLE_NAME)::text);
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        changed_rows := array_append(changed_rows, to_jsonb(OLD));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        changed_rows := array_append(changed_rows, to_jsonb(NEW));
+    END IF;
+
+    FOREACH changed_row IN ARRAY changed_rows LOOP
+        PERFORM pg_notify('notify_cache_invalidation', json_build_object(
+            'table', TG_TABLE_NAME,
+            'packCode', COALESCE(changed_row ->> 'pack_code',
+                                 changed_row ->> 'sms_template_pack_code',
+                                 changed_row ->> 'email_template_pack_code'),
+            'surveyId', changed_row ->> 'survey_id')::text);
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS notify_cache_invalidation ON casev3.sms_template;
+CREATE TRIGGER notify_cache_invalidation AFTER INSERT OR UPDATE OR DELETE ON casev3.sms_template
+    FOR EACH ROW EXECUTE FUNCTION casev3.notify_cache_invalidation();
+DROP TRIGGER IF EXISTS notify_cache_invalidation_truncate ON casev3.sms_template;
+CREATE TRIGGER notify_cache_invalidation_truncate AFTER TRUNCATE ON casev3.sms_template
+    FOR EACH STATEMENT EXECUTE FUNCTION casev3.notify_cache_invalidation();
+
+DROP TRIGGER IF EXISTS notify_cache_invalidation ON casev3.email_template;
+CREATE TRIGGER notify_cache_invalidation AFTER INSERT OR UPDATE OR DELETE ON casev3.email_template
+    FOR EACH ROW EXECUTE FUNCTION casev3.notify_cache_invalidation();
+DROP TRIGGER IF EXISTS notify_cache_invalidation_truncate ON casev3.email_template;
+CREATE TRIGGER notify_cache_invalidation_truncate AFTER TRUNCATE ON casev3.email_template
+    FOR EACH STATEMENT EXECUTE FUNCTION casev3.notify_cache_invalidation();
+
+DROP TRIGGER IF EXISTS notify_cache_invalidation ON casev3.fulfilment_survey_sms_template;
+CREATE TRIGGER notify_cache_invalidation AFTER INSERT OR UPDATE OR DELETE ON casev3.fulfilment_survey_sms_template
+    FOR EACH ROW EXECUTE FUNCTION casev3.notify_cache_invalidation();
+DROP TRIGGER IF EXISTS notify_cache_invalidation_truncate ON casev3.fulfilment_survey_sms_template;
+CREATE TRIGGER notify_cache_invalidation_truncate AFTER TRUNCATE ON casev3.fulfilment_survey_sms_template
+    FOR EACH STATEMENT EXECUTE FUNCTION casev3.notify_cache_invalidation();
+
+DROP TRIGGER IF EXISTS notify_cache_invalidation ON casev3.fulfilment_survey_email_template;
+CREATE TRIGGER notify_cache_invalidation AFTER INSERT OR UPDATE OR DELETE ON casev3.fulfilment_survey_email_template
+    FOR EACH ROW EXECUTE FUNCTION casev3.notify_cache_invalidation();
+DROP TRIGGER IF EXISTS notify_cache_invalidation_truncate ON casev3.fulfilment_survey_email_template;
+CREATE TRIGGER notify_cache_invalidation_truncate AFTER TRUNCATE ON casev3.fulfilment_survey_email_template
+    FOR EACH STATEMENT EXECUTE FUNCTION casev3.notify_cache_invalidation();
@@ -0,0 +1,8 @@
+CREATE SCHEMA IF NOT EXISTS notifyservice;
+
+CREATE TABLE IF NOT EXISTS notifyservice.outbox_event (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
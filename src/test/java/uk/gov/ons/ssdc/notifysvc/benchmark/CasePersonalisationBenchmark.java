@@ -0,0 +1,97 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_SENSITIVE_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ssdc.common.model.entity.Case;
+import uk.gov.ons.ssdc.notifysvc.utils.ObjectMapperFactory;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
+
+/**
+ * Service side cost of personalising an enriched message for cases with large samples, hydrating
+ * the whole sample JSON as loading the Case entity does against taking just the projected values
+ * the template needs. The database side saving, not reading and sending the rest of the sample, is
+ * on top of this. Run with -prof gc to compare allocation too.
+ *
+ * <p>Run with: make benchmark BENCHMARK=CasePersonalisationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CasePersonalisationBenchmark {
+  private static final TypeReference<Map<String, String>> SAMPLE_TYPE = new TypeReference<>() {};
+
+  @Param({"20", "500", "5000"})
+  private int sampleSize;
+
+  private final ObjectMapper objectMapper = ObjectMapperFactory.objectMapper();
+  private PersonalisationPlan plan;
+  private String sampleJson;
+  private String sampleSensitiveJson;
+  private String[] sampleValues;
+  private String[] sensitiveValues;
+
+  @Setup
+  public void setUp() throws IOException {
+    plan =
+        PersonalisationPlan.forTemplate(
+            new String[] {
+              TEMPLATE_UAC_KEY,
+              TEMPLATE_QID_KEY,
+              "field1",
+              "field2",
+              "field3",
+              TEMPLATE_SENSITIVE_PREFIX + "phoneNumber"
+            });
+
+    Map<String, String> sample = new HashMap<>();
+    for (int i = 0; i < sampleSize; i++) {
+      sample.put("field" + i, "a sample value of typical length " + i);
+    }
+    sampleJson = objectMapper.writeValueAsString(sample);
+    sampleSensitiveJson =
+        objectMapper.writeValueAsString(
+            Map.of("phoneNumber", "07123456789", "email", "test@example.test"));
+
+    sampleValues = new String[plan.getSampleKeys().length];
+    for (int i = 0; i < sampleValues.length; i++) {
+      sampleValues[i] = sample.get(plan.getSampleKeys()[i]);
+    }
+    sensitiveValues = new String[] {"07123456789"};
+  }
+
+  @Benchmark
+  public Map<String, String> fullCase() throws IOException {
+    Case caze = new Case();
+    caze.setSample(objectMapper.readValue(sampleJson, SAMPLE_TYPE));
+    caze.setSampleSensitive(objectMapper.readValue(sampleSensitiveJson, SAMPLE_TYPE));
+    return plan.buildPersonalisation(caze, "TEST_UAC", "TEST_QID", null);
+  }
+
+  @Benchmark
+  public Map<String, String> projectedFields() {
+    return plan.buildPersonalisation(
+        sampleValues.clone(), sensitiveValues.clone(), "TEST_UAC", "TEST_QID", null);
+  }
+}
@@ -0,0 +1,146 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailConfirmation;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsConfirmation;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
+import uk.gov.ons.ssdc.notifysvc.utils.EventCodec;
+import uk.gov.ons.ssdc.notifysvc.utils.JsonHelper;
+import uk.gov.ons.ssdc.notifysvc.utils.ObjectMapperFactory;
+
+/**
+ * Writing and reading the events this service publishes and consumes, through the ObjectMapper as
+ * before against the readers and writers EventCodec builds up front. Run with -prof gc to compare
+ * allocation too.
+ *
+ * <p>Run with: make benchmark BENCHMARK=EventCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventCodecBenchmark {
+
+  @Param({
+    "SMS_CONFIRMATION",
+    "EMAIL_CONFIRMATION",
+    "SMS_REQUEST_ENRICHED",
+    "EMAIL_REQUEST_ENRICHED"
+  })
+  private String eventType;
+
+  private final ObjectMapper objectMapper = ObjectMapperFactory.objectMapper();
+  private EventDTO event;
+  // Held as the ByteString a Pub/Sub message arrives as
+  private ByteString enrichedMessage;
+
+  @Setup
+  public void setUp() throws IOException {
+    EventHeaderDTO header = new EventHeaderDTO();
+    header.setVersion("0.5.0");
+    header.setTopic("test-topic");
+    header.setSource("TEST_SOURCE");
+    header.setChannel("TEST_CHANNEL");
+    header.setDateTime(OffsetDateTime.now(ZoneOffset.UTC));
+    header.setMessageId(UUID.randomUUID());
+    header.setCorrelationId(UUID.randomUUID());
+    header.setOriginatingUser("test@example.test");
+
+    Map<String, String> personalisation = Map.of("name", "Joe", "uac", "TEST_UAC");
+    PayloadDTO payload = new PayloadDTO();
+    switch (eventType) {
+      case "SMS_CONFIRMATION" -> {
+        SmsConfirmation smsConfirmation = new SmsConfirmation();
+        smsConfirmation.setCaseId(UUID.randomUUID());
+        smsConfirmation.setPackCode("TEST_PACK_CODE");
+        smsConfirmation.setUac("TEST_UAC");
+        smsConfirmation.setQid("TEST_QID");
+        smsConfirmation.setPersonalisation(personalisation);
+        payload.setSmsConfirmation(smsConfirmation);
+      }
+      case "EMAIL_CONFIRMATION" -> {
+        EmailConfirmation emailConfirmation = new EmailConfirmation();
+        emailConfirmation.setCaseId(UUID.randomUUID());
+        emailConfirmation.setPackCode("TEST_PACK_CODE");
+        emailConfirmation.setUac("TEST_UAC");
+        emailConfirmation.setQid("TEST_QID");
+        emailConfirmation.setPersonalisation(personalisation);
+        payload.setEmailConfirmation(emailConfirmation);
+      }
+      case "SMS_REQUEST_ENRICHED" -> {
+        SmsRequestEnriched smsRequestEnriched = new SmsRequestEnriched();
+        smsRequestEnriched.setCaseId(UUID.randomUUID());
+        smsRequestEnriched.setPhoneNumber("07123456789");
+        smsRequestEnriched.setPackCode("TEST_PACK_CODE");
+        smsRequestEnriched.setUac("TEST_UAC");
+        smsRequestEnriched.setQid("TEST_QID");
+        smsRequestEnriched.setPersonalisation(personalisation);
+        payload.setSmsRequestEnriched(smsRequestEnriched);
+      }
+      case "EMAIL_REQUEST_ENRICHED" -> {
+        EmailRequestEnriched emailRequestEnriched = new EmailRequestEnriched();
+        emailRequestEnriched.setCaseId(UUID.randomUUID());
+        emailRequestEnriched.setEmail("example@example.test");
+        emailRequestEnriched.setPackCode("TEST_PACK_CODE");
+        emailRequestEnriched.setUac("TEST_UAC");
+        emailRequestEnriched.setQid("TEST_QID");
+        emailRequestEnriched.setPersonalisation(personalisation);
+        payload.setEmailRequestEnriched(emailRequestEnriched);
+      }
+      default -> throw new IllegalArgumentException(eventType);
+    }
+    event = new EventDTO(header, payload);
+    enrichedMessage = ByteString.copyFrom(objectMapper.writeValueAsBytes(event));
+  }
+
+  @Benchmark
+  public byte[] writeWithObjectMapper() throws IOException {
+    return objectMapper.writeValueAsBytes(event);
+  }
+
+  @Benchmark
+  public byte[] writeWithEventCodec() {
+    return EventCodec.writeEventAsBytes(event);
+  }
+
+  @Benchmark
+  public Object readEnrichedWithObjectMapper() throws IOException {
+    return objectMapper.readValue(enrichedMessage.newInput(), EventDTO.class);
+  }
+
+  @Benchmark
+  public Object readEnrichedWithEventCodec() throws IOException {
+    return switch (eventType) {
+      case "SMS_REQUEST_ENRICHED" -> JsonHelper.convertJsonBytesToEvent(
+          enrichedMessage, SmsRequestEnriched.class);
+      case "EMAIL_REQUEST_ENRICHED" -> JsonHelper.convertJsonBytesToEvent(
+          enrichedMessage, EmailRequestEnriched.class);
+        // Confirmations are only ever written by this service
+      default -> objectMapper.readValue(enrichedMessage.newInput(), EventDTO.class);
+    };
+  }
+}
@@ -0,0 +1,115 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
+import uk.gov.ons.ssdc.notifysvc.utils.JsonHelper;
+import uk.gov.ons.ssdc.notifysvc.utils.ObjectMapperFactory;
+
+/**
+ * Reading an inbound enriched SMS event, binding the whole event as before against streaming the
+ * header first and binding only the expected payload type. Messages with an unsupported version are
+ * rejected by the streaming read without reading the payload at all. Run with -prof gc to compare
+ * allocation too.
+ *
+ * <p>Run with: make benchmark BENCHMARK=EventParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventParsingBenchmark {
+
+  @Param({"5", "500"})
+  private int personalisationSize;
+
+  private final ObjectMapper objectMapper = ObjectMapperFactory.objectMapper();
+  // Held as the ByteString a Pub/Sub message arrives as
+  private ByteString message;
+  private ByteString unsupportedVersionMessage;
+
+  @Setup
+  public void setUp() throws IOException {
+    EventHeaderDTO header = new EventHeaderDTO();
+    header.setVersion("0.5.0");
+    header.setTopic("rm-internal-sms-request-enriched");
+    header.setSource("TEST_SOURCE");
+    header.setChannel("TEST_CHANNEL");
+    header.setDateTime(OffsetDateTime.now(ZoneOffset.UTC));
+    header.setMessageId(UUID.randomUUID());
+    header.setCorrelationId(UUID.randomUUID());
+    header.setOriginatingUser("test@example.test");
+
+    Map<String, String> personalisation = new HashMap<>();
+    for (int i = 0; i < personalisationSize; i++) {
+      personalisation.put("field" + i, "a personalisation value of typical length " + i);
+    }
+    SmsRequestEnriched smsRequestEnriched = new SmsRequestEnriched();
+    smsRequestEnriched.setCaseId(UUID.randomUUID());
+    smsRequestEnriched.setPhoneNumber("07123456789");
+    smsRequestEnriched.setPackCode("TEST_PACK_CODE");
+    smsRequestEnriched.setUac("TEST_UAC");
+    smsRequestEnriched.setQid("TEST_QID");
+    smsRequestEnriched.setPersonalisation(personalisation);
+    PayloadDTO payload = new PayloadDTO();
+    payload.setSmsRequestEnriched(smsRequestEnriched);
+
+    message = ByteString.copyFrom(objectMapper.writeValueAsBytes(new EventDTO(header, payload)));
+
+    header.setVersion("0.1.0");
+    unsupportedVersionMessage =
+        ByteString.copyFrom(objectMapper.writeValueAsBytes(new EventDTO(header, payload)));
+  }
+
+  @Benchmark
+  public EventDTO bindWholeEvent() throws IOException {
+    EventDTO event = objectMapper.readValue(message.newInput(), EventDTO.class);
+    if (event.getHeader().getVersion() == null) {
+      throw new IllegalStateException();
+    }
+    return event;
+  }
+
+  @Benchmark
+  public EventDTO streamHeaderFirst() {
+    return JsonHelper.convertJsonBytesToEvent(message, SmsRequestEnriched.class);
+  }
+
+  @Benchmark
+  public Object bindWholeEventUnsupportedVersion() throws IOException {
+    return objectMapper.readValue(unsupportedVersionMessage.newInput(), EventDTO.class).getHeader();
+  }
+
+  @Benchmark
+  public Object streamHeaderFirstUnsupportedVersion() {
+    try {
+      return JsonHelper.convertJsonBytesToEvent(
+          unsupportedVersionMessage, SmsRequestEnriched.class);
+    } catch (RuntimeException e) {
+      return e;
+    }
+  }
+}
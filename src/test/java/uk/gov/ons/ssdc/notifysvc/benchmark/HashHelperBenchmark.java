@@ -0,0 +1,72 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import com.google.protobuf.ByteString;
+import jakarta.xml.bind.DatatypeConverter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
+
+/**
+ * Hashing a UAC sized and a message sized input, looking up a new digest and hex encoding through
+ * DatatypeConverter as before, against a digest cloned from a prototype and lookup table encoding.
+ * Run with -prof gc to compare allocation too.
+ *
+ * <p>Run with: make benchmark BENCHMARK=HashHelperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HashHelperBenchmark {
+
+  @Param({"16", "2048"})
+  private int inputSize;
+
+  private byte[] bytes;
+  private ByteString byteString;
+
+  @Setup
+  public void setUp() {
+    bytes = "x".repeat(inputSize).getBytes(StandardCharsets.UTF_8);
+    byteString = ByteString.copyFrom(bytes);
+  }
+
+  @Benchmark
+  public String lookupDigestEachTime() throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    return DatatypeConverter.printHexBinary(digest.digest(bytes)).toLowerCase(Locale.ROOT);
+  }
+
+  @Benchmark
+  public String lookupDigestEachTimeFromByteString() throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    return DatatypeConverter.printHexBinary(digest.digest(byteString.toByteArray()))
+        .toLowerCase(Locale.ROOT);
+  }
+
+  @Benchmark
+  public String clonedDigest() {
+    return HashHelper.hash(bytes);
+  }
+
+  @Benchmark
+  public String clonedDigestFromByteString() {
+    return HashHelper.hash(byteString);
+  }
+}
@@ -0,0 +1,126 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_SENSITIVE_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.CollectionUtils;
+import uk.gov.ons.ssdc.common.model.entity.Case;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
+
+/**
+ * Per message cost of working out a typical template's personalisation, re-parsing the template
+ * each time as the helper used to against the cached compiled plan. Run with -prof gc to compare
+ * allocation too.
+ *
+ * <p>Run with: make benchmark BENCHMARK=PersonalisationPlanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersonalisationPlanBenchmark {
+  private String[] template;
+  private Case caze;
+  private Map<String, String> requestPersonalisation;
+
+  @Setup
+  public void setUp() {
+    template =
+        new String[] {
+          TEMPLATE_UAC_KEY,
+          TEMPLATE_QID_KEY,
+          "firstName",
+          "lastName",
+          "addressLine1",
+          "postcode",
+          TEMPLATE_SENSITIVE_PREFIX + "phoneNumber",
+          TEMPLATE_REQUEST_PREFIX + "name"
+        };
+
+    Map<String, String> sample = new HashMap<>();
+    for (int i = 0; i < 20; i++) {
+      sample.put("field" + i, "value" + i);
+    }
+    sample.put("firstName", "Jo");
+    sample.put("lastName", "Bloggs");
+    sample.put("addressLine1", "1 Test Street");
+    sample.put("postcode", "TE1 1ST");
+
+    caze = new Case();
+    caze.setSample(sample);
+    caze.setSampleSensitive(Map.of("phoneNumber", "07123456789"));
+    requestPersonalisation = Map.of("name", "Jo Bloggs");
+  }
+
+  @Benchmark
+  public void reparseTemplate(Blackhole blackhole) {
+    if (CollectionUtils.containsAny(
+        Arrays.asList(template), List.of(TEMPLATE_UAC_KEY, TEMPLATE_QID_KEY))) {
+      blackhole.consume(
+          reparseTemplate(template, caze, "TEST_UAC", "TEST_QID", requestPersonalisation));
+    }
+  }
+
+  @Benchmark
+  public void compiledPlan(Blackhole blackhole) {
+    PersonalisationPlan plan = PersonalisationPlan.forTemplate(template);
+    if (plan.requiresNewUacQid()) {
+      blackhole.consume(
+          plan.buildPersonalisation(caze, "TEST_UAC", "TEST_QID", requestPersonalisation));
+    }
+  }
+
+  private static Map<String, String> reparseTemplate(
+      String[] template,
+      Case caze,
+      String uac,
+      String qid,
+      Map<String, String> requestPersonalisation) {
+    Map<String, String> templateValues = new HashMap<>();
+
+    for (String templateItem : template) {
+      if (templateItem.equals(TEMPLATE_UAC_KEY)) {
+        templateValues.put(TEMPLATE_UAC_KEY, uac);
+      } else if (templateItem.equals(TEMPLATE_QID_KEY)) {
+        templateValues.put(TEMPLATE_QID_KEY, qid);
+      } else if (templateItem.startsWith(TEMPLATE_SENSITIVE_PREFIX)) {
+        templateValues.put(
+            templateItem,
+            caze.getSampleSensitive()
+                .get(templateItem.substring(TEMPLATE_SENSITIVE_PREFIX.length())));
+      } else if (templateItem.startsWith(TEMPLATE_REQUEST_PREFIX)) {
+        if (requestPersonalisation != null
+            && requestPersonalisation.containsKey(
+                templateItem.substring(TEMPLATE_REQUEST_PREFIX.length()))) {
+          templateValues.put(
+              templateItem,
+              requestPersonalisation.get(templateItem.substring(TEMPLATE_REQUEST_PREFIX.length())));
+        }
+      } else {
+        templateValues.put(templateItem, caze.getSample().get(templateItem));
+      }
+    }
+
+    return templateValues;
+  }
+}
@@ -0,0 +1,72 @@
+package uk.gov.ons.ssdc.notifysvc.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Time to get a number of in flight messages through a handler which blocks for about as long as a
+ * Gov Notify call, with one platform or virtual thread per message. The VIRTUAL runs need a Java
+ * 21+ runtime.
+ *
+ * <p>Run with: make benchmark BENCHMARK=ThreadModelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class ThreadModelBenchmark {
+  private static final long SIMULATED_NOTIFY_CALL_MILLIS = 50;
+
+  @Param({"PLATFORM", "VIRTUAL"})
+  private String threadModel;
+
+  @Param({"1000", "10000"})
+  private int inFlightMessages;
+
+  private SimpleAsyncTaskExecutor executor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = new SimpleAsyncTaskExecutor("benchmark-");
+    executor.setVirtualThreads("VIRTUAL".equals(threadModel));
+    executor.setConcurrencyLimit(inFlightMessages);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.close();
+  }
+
+  @Benchmark
+  public void handleInFlightMessages() throws InterruptedException {
+    CountDownLatch handled = new CountDownLatch(inFlightMessages);
+    for (int i = 0; i < inFlightMessages; i++) {
+      executor.execute(
+          () -> {
+            try {
+              Thread.sleep(SIMULATED_NOTIFY_CALL_MILLIS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            handled.countDown();
+          });
+    }
+    handled.await();
+  }
+}
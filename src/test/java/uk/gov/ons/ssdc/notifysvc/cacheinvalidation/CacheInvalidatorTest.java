@@ -0,0 +1,112 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
+import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
+import uk.gov.ons.ssdc.notifysvc.service.FulfilmentAllowList;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidatorTest {
+  private static final String TEST_PACK_CODE = "TEST_PACK_CODE";
+
+  @Mock CacheManager cacheManager;
+  @Mock EntityManagerFactory entityManagerFactory;
+  @Mock FulfilmentAllowList fulfilmentAllowList;
+  @Mock Cache smsTemplates;
+  @Mock Cache emailTemplates;
+  @Mock jakarta.persistence.Cache secondLevelCache;
+
+  @InjectMocks CacheInvalidator underTest;
+
+  @Test
+  void testChangedTemplateEvicted() {
+    // Given
+    when(cacheManager.getCache("smsTemplates")).thenReturn(smsTemplates);
+    when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+
+    // When
+    underTest.invalidate("{\"table\":\"sms_template\",\"packCode\":\"TEST_PACK_CODE\"}");
+
+    // Then
+    verify(smsTemplates).evict(TEST_PACK_CODE);
+    verify(secondLevelCache).evict(SmsTemplate.class, TEST_PACK_CODE);
+    verify(smsTemplates, never()).clear();
+  }
+
+  @Test
+  void testPackCodeEvictedFromBothTemplateCaches() {
+    // Given
+    when(cacheManager.getCache("smsTemplates")).thenReturn(smsTemplates);
+    when(cacheManager.getCache("emailTemplates")).thenReturn(emailTemplates);
+    when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+
+    // When
+    underTest.evictTemplates(TEST_PACK_CODE);
+
+    // Then
+    verify(smsTemplates).evict(TEST_PACK_CODE);
+    verify(emailTemplates).evict(TEST_PACK_CODE);
+    verify(secondLevelCache).evict(SmsTemplate.class, TEST_PACK_CODE);
+    verify(secondLevelCache).evict(EmailTemplate.class, TEST_PACK_CODE);
+    verify(fulfilmentAllowList, never()).refresh();
+  }
+
+  @Test
+  void testChangedAllowListEntryEvicted() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+
+    // When
+    underTest.invalidate(
+        "{\"table\":\"fulfilment_survey_email_template\",\"packCode\":\"TEST_PACK_CODE\","
+            + "\"surveyId\":\""
+            + surveyId
+            + "\"}");
+
+    // Then
+    verify(fulfilmentAllowList).evictEmailTemplate(surveyId, TEST_PACK_CODE);
+    verify(fulfilmentAllowList, never()).refresh();
+  }
+
+  @Test
+  void testTruncateReloadsEverything() {
+    // Given
+    when(cacheManager.getCache("smsTemplates")).thenReturn(smsTemplates);
+    when(cacheManager.getCache("emailTemplates")).thenReturn(emailTemplates);
+    when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+
+    // When
+    underTest.invalidate("{\"table\":\"email_template\"}");
+
+    // Then
+    verify(smsTemplates).clear();
+    verify(emailTemplates).clear();
+    verify(secondLevelCache).evict(SmsTemplate.class);
+    verify(secondLevelCache).evict(EmailTemplate.class);
+    verify(fulfilmentAllowList).refresh();
+  }
+
+  @Test
+  void testUnreadableNotificationReloadsEverything() {
+    // Given
+    when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+
+    // When
+    underTest.invalidate("not json");
+
+    // Then
+    verify(fulfilmentAllowList).refresh();
+  }
+}
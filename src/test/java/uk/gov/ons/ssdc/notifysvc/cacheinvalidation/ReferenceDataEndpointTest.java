@@ -0,0 +1,35 @@
+package uk.gov.ons.ssdc.notifysvc.cacheinvalidation;
+
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataEndpointTest {
+
+  @Mock CacheInvalidator cacheInvalidator;
+
+  @InjectMocks ReferenceDataEndpoint underTest;
+
+  @Test
+  void testReloadResyncsAllReferenceData() {
+    // When
+    underTest.reload();
+
+    // Then
+    verify(cacheInvalidator).resync();
+  }
+
+  @Test
+  void testEvictTemplateEvictsPackCode() {
+    // When
+    underTest.evictTemplate("TEST_PACK_CODE");
+
+    // Then
+    verify(cacheInvalidator).evictTemplates("TEST_PACK_CODE");
+  }
+}
@@ -0,0 +1,182 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMIT_ERROR_HTTP_STATUS;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimiter;
+import uk.gov.service.notify.NotificationClientException;
+
+@ExtendWith(MockitoExtension.class)
+class GovNotifyClientTest {
+  private static final String TEST_SERVICE_REF = "test-service";
+  private static final String TEST_TEMPLATE_ID = "TEST_TEMPLATE_ID";
+  private static final String TEST_SENDER = "TEST_SENDER";
+  private static final Map<String, String> TEST_PERSONALISATION = Map.of("foo", "bar");
+
+  @Mock NotifyServiceRefMapping notifyServiceRefMapping;
+  @Mock NotifyRateLimiter notifyRateLimiter;
+  @Mock NotifyTransport notifyTransport;
+
+  private final CircuitBreakerRegistry circuitBreakerRegistry =
+      CircuitBreakerRegistry.of(Map.of("notify", CircuitBreakerConfig.ofDefaults()));
+
+  @Spy
+  DependencyGuard dependencyGuard =
+      new DependencyGuard(
+          circuitBreakerRegistry,
+          BulkheadRegistry.of(Map.of("notify", BulkheadConfig.ofDefaults())));
+
+  @InjectMocks GovNotifyClient govNotifyClient;
+
+  @Test
+  void testSendSmsAcquiresPermitAndRecordsSuccess() throws NotificationClientException {
+    // Given
+    when(notifyServiceRefMapping.getSenderId(TEST_SERVICE_REF)).thenReturn(TEST_SENDER);
+    when(notifyTransport.sendSms(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    // When
+    govNotifyClient.sendSms(
+        TEST_SERVICE_REF, TEST_TEMPLATE_ID, "07123456789", TEST_PERSONALISATION);
+
+    // Then
+    InOrder inOrder = Mockito.inOrder(notifyRateLimiter, notifyTransport);
+    inOrder.verify(notifyRateLimiter).acquire(TEST_SERVICE_REF);
+    inOrder
+        .verify(notifyTransport)
+        .sendSms(
+            TEST_SERVICE_REF, TEST_TEMPLATE_ID, "07123456789", TEST_PERSONALISATION, TEST_SENDER);
+    inOrder.verify(notifyRateLimiter).recordSuccess(TEST_SERVICE_REF);
+  }
+
+  @Test
+  void testSendEmailRateLimitedBacksOff() {
+    // Given
+    when(notifyTransport.sendEmail(any(), any(), any(), any(), any()))
+        .thenReturn(
+            CompletableFuture.failedFuture(
+                new NotifyHttpException(RATE_LIMIT_ERROR_HTTP_STATUS, "Test Throw")));
+
+    // When
+    NotificationClientException thrown =
+        assertThrows(
+            NotificationClientException.class,
+            () ->
+                govNotifyClient.sendEmail(
+                    TEST_SERVICE_REF,
+                    TEST_TEMPLATE_ID,
+                    "example@example.com",
+                    TEST_PERSONALISATION,
+                    "TEST_REFERENCE"));
+
+    // Then
+    assertThat(thrown.getHttpResult()).isEqualTo(RATE_LIMIT_ERROR_HTTP_STATUS);
+    verify(notifyRateLimiter).recordRateLimited(TEST_SERVICE_REF);
+    verify(notifyRateLimiter, never()).recordSuccess(any());
+  }
+
+  @Test
+  void testSendEmailOtherErrorDoesNotBackOff() {
+    // Given
+    when(notifyTransport.sendEmail(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new NotificationClientException("Test Throw")));
+
+    // When
+    assertThrows(
+        NotificationClientException.class,
+        () ->
+            govNotifyClient.sendEmail(
+                TEST_SERVICE_REF,
+                TEST_TEMPLATE_ID,
+                "example@example.com",
+                TEST_PERSONALISATION,
+                "TEST_REFERENCE"));
+
+    // Then
+    verify(notifyRateLimiter, never()).recordRateLimited(any());
+  }
+
+  @Test
+  void testSendSmsRejectedWhileCircuitBreakerOpen() {
+    // Given
+    circuitBreakerRegistry
+        .circuitBreaker("notify-" + TEST_SERVICE_REF, "notify")
+        .transitionToOpenState();
+
+    // When
+    assertThrows(
+        CallNotPermittedException.class,
+        () ->
+            govNotifyClient.sendSms(
+                TEST_SERVICE_REF, TEST_TEMPLATE_ID, "07123456789", TEST_PERSONALISATION));
+
+    // Then
+    verify(notifyRateLimiter, never()).acquire(any());
+    verify(notifyTransport, never()).sendSms(any(), any(), any(), any(), any());
+    verify(notifyRateLimiter, never()).recordSuccess(TEST_SERVICE_REF);
+  }
+
+  @Test
+  void testSendSmsAsyncChainsPermitBeforeSend() {
+    // Given
+    CompletableFuture<Void> permit = new CompletableFuture<>();
+    when(notifyServiceRefMapping.getSenderId(TEST_SERVICE_REF)).thenReturn(TEST_SENDER);
+    when(notifyRateLimiter.acquireAsync(TEST_SERVICE_REF)).thenReturn(permit);
+    when(notifyTransport.sendSms(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    // When
+    CompletableFuture<?> response =
+        govNotifyClient.sendSmsAsync(
+            TEST_SERVICE_REF, TEST_TEMPLATE_ID, "07123456789", TEST_PERSONALISATION);
+
+    // Then
+    verify(notifyTransport, never()).sendSms(any(), any(), any(), any(), any());
+    permit.complete(null);
+    assertThat(response).isCompleted();
+    verify(notifyRateLimiter, never()).acquire(any());
+    verify(notifyRateLimiter).recordSuccess(TEST_SERVICE_REF);
+  }
+
+  @Test
+  void testSendEmailAsyncRejectedWhileCircuitBreakerOpenWithoutTakingPermit() {
+    // Given
+    circuitBreakerRegistry
+        .circuitBreaker("notify-" + TEST_SERVICE_REF, "notify")
+        .transitionToOpenState();
+
+    // When
+    CompletableFuture<?> response =
+        govNotifyClient.sendEmailAsync(
+            TEST_SERVICE_REF,
+            TEST_TEMPLATE_ID,
+            "example@example.com",
+            TEST_PERSONALISATION,
+            "TEST_REFERENCE");
+
+    // Then
+    assertThat(response).isCompletedExceptionally();
+    verify(notifyRateLimiter, never()).acquireAsync(any());
+  }
+}
@@ -0,0 +1,126 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.RATE_LIMIT_ERROR_HTTP_STATUS;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.service.notify.SendSmsResponse;
+
+class HttpNotifyTransportTest {
+  private static final String TEST_SERVICE_REF = "test-service";
+  private static final String TEST_API_KEY =
+      "TESTSERVICEKEY-ffffffff-ffff-ffff-ffff-ffffffffffff-ffffffff-ffff-ffff-ffff-ffffffffffff";
+
+  private WireMockServer wireMockServer;
+  private HttpNotifyTransport underTest;
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer = new WireMockServer(options().dynamicPort());
+    wireMockServer.start();
+
+    NotifyServiceRefMapping notifyServiceRefMapping = new NotifyServiceRefMapping();
+    notifyServiceRefMapping.addNotifyClient(
+        TEST_SERVICE_REF, wireMockServer.baseUrl(), TEST_API_KEY, "TEST_SENDER");
+
+    NotifyTransportProperties notifyTransportProperties = new NotifyTransportProperties();
+    notifyTransportProperties.setConnectTimeout(Duration.ofSeconds(5));
+    notifyTransportProperties.setRequestTimeout(Duration.ofSeconds(5));
+    notifyTransportProperties.setDefaultMaxConcurrentRequests(1);
+
+    underTest = new HttpNotifyTransport(notifyServiceRefMapping, notifyTransportProperties);
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMockServer.stop();
+  }
+
+  @Test
+  void testSendSms() {
+    // Given
+    UUID notificationId = UUID.randomUUID();
+    UUID templateId = UUID.randomUUID();
+    wireMockServer.stubFor(
+        post(urlEqualTo("/v2/notifications/sms"))
+            .willReturn(
+                aResponse()
+                    .withStatus(201)
+                    .withBody(
+                        "{\"id\":\""
+                            + notificationId
+                            + "\",\"reference\":\"TEST_SENDER\",\"content\":{\"body\":\"Hello\""
+                            + ",\"from_number\":\"ONS\"},\"template\":{\"id\":\""
+                            + templateId
+                            + "\",\"version\":1,\"uri\":\"http://junk\"}}")));
+
+    // When
+    SendSmsResponse response =
+        underTest
+            .sendSms(
+                TEST_SERVICE_REF,
+                templateId.toString(),
+                "07123456789",
+                Map.of("foo", "bar"),
+                "TEST_SENDER")
+            .join();
+
+    // Then
+    assertThat(response.getNotificationId()).isEqualTo(notificationId);
+    wireMockServer.verify(
+        postRequestedFor(urlEqualTo("/v2/notifications/sms"))
+            .withHeader("Authorization", matching("Bearer .+\\..+\\..+"))
+            .withRequestBody(
+                equalToJson(
+                    "{\"phone_number\":\"07123456789\",\"template_id\":\""
+                        + templateId
+                        + "\",\"personalisation\":{\"foo\":\"bar\"},"
+                        + "\"reference\":\"TEST_SENDER\"}")));
+  }
+
+  @Test
+  void testSendEmailRateLimited() {
+    // Given
+    wireMockServer.stubFor(
+        post(urlEqualTo("/v2/notifications/email"))
+            .willReturn(
+                aResponse()
+                    .withStatus(RATE_LIMIT_ERROR_HTTP_STATUS)
+                    .withBody("{\"errors\":[{\"error\":\"RateLimitError\"}]}")));
+
+    // When
+    CompletionException thrown =
+        assertThrows(
+            CompletionException.class,
+            () ->
+                underTest
+                    .sendEmail(
+                        TEST_SERVICE_REF,
+                        UUID.randomUUID().toString(),
+                        "example@example.com",
+                        Map.of(),
+                        "TEST_REFERENCE")
+                    .join());
+
+    // Then
+    assertThat(thrown.getCause()).isInstanceOf(NotifyHttpException.class);
+    assertThat(((NotifyHttpException) thrown.getCause()).getHttpResult())
+        .isEqualTo(RATE_LIMIT_ERROR_HTTP_STATUS);
+  }
+}
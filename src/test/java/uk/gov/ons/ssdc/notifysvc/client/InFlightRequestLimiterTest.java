@@ -0,0 +1,52 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class InFlightRequestLimiterTest {
+
+  @Test
+  void testRequestsOverTheLimitWaitForEarlierOnesToComplete() {
+    // Given
+    InFlightRequestLimiter underTest = new InFlightRequestLimiter(1);
+    CompletableFuture<String> firstInFlight = new CompletableFuture<>();
+    AtomicInteger secondStarted = new AtomicInteger();
+
+    // When
+    CompletableFuture<String> firstResult = underTest.submit(() -> firstInFlight);
+    CompletableFuture<String> secondResult =
+        underTest.submit(
+            () -> {
+              secondStarted.incrementAndGet();
+              return CompletableFuture.completedFuture("second");
+            });
+
+    // Then
+    assertThat(secondStarted).hasValue(0);
+    assertThat(secondResult).isNotDone();
+
+    firstInFlight.complete("first");
+    assertThat(firstResult).isCompletedWithValue("first");
+    assertThat(secondStarted).hasValue(1);
+    assertThat(secondResult).isCompletedWithValue("second");
+  }
+
+  @Test
+  void testFailedRequestFreesItsPlace() {
+    // Given
+    InFlightRequestLimiter underTest = new InFlightRequestLimiter(1);
+
+    // When
+    CompletableFuture<String> failedResult =
+        underTest.submit(() -> CompletableFuture.failedFuture(new RuntimeException("boom")));
+    CompletableFuture<String> nextResult =
+        underTest.submit(() -> CompletableFuture.completedFuture("next"));
+
+    // Then
+    assertThat(failedResult).isCompletedExceptionally();
+    assertThat(nextResult).isCompletedWithValue("next");
+  }
+}
@@ -0,0 +1,170 @@
+package uk.gov.ons.ssdc.notifysvc.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
+
+@ExtendWith(MockitoExtension.class)
+class UacQidPairPoolTest {
+
+  @Mock UacQidServiceClient uacQidServiceClient;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final UacQidPoolProperties uacQidPoolProperties = new UacQidPoolProperties();
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @BeforeEach
+  void setUp() {
+    uacQidPoolProperties.setEnabled(true);
+    uacQidPoolProperties.setCapacity(3);
+    uacQidPoolProperties.setLowWatermark(1);
+    uacQidPoolProperties.setMaxAge(Duration.ofMinutes(30));
+  }
+
+  @Test
+  void testDisabledPoolGeneratesDirectly() {
+    // Given
+    uacQidPoolProperties.setEnabled(false);
+    UacQidCreatedPayloadDTO uacQidPair = buildUacQidPair("1");
+    when(uacQidServiceClient.generateUacQid()).thenReturn(uacQidPair);
+    UacQidPairPool uacQidPairPool = buildPool();
+
+    // When
+    UacQidCreatedPayloadDTO actualUacQidPair = uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(actualUacQidPair).isEqualTo(uacQidPair);
+    assertThat(uacQidPairPool.size()).isZero();
+  }
+
+  @Test
+  void testMissRefillsPoolThenHitsAreServedFromPool() {
+    // Given
+    when(uacQidServiceClient.generateUacQid())
+        .thenReturn(
+            buildUacQidPair("1"), buildUacQidPair("2"), buildUacQidPair("3"), buildUacQidPair("4"));
+    UacQidPairPool uacQidPairPool = buildPool();
+
+    // When
+    UacQidCreatedPayloadDTO missedUacQidPair = uacQidPairPool.getUacQidPair();
+    UacQidCreatedPayloadDTO pooledUacQidPair = uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(missedUacQidPair.getUac()).isEqualTo("UAC_4");
+    assertThat(pooledUacQidPair.getUac()).isEqualTo("UAC_1");
+    assertThat(uacQidPairPool.size()).isEqualTo(2);
+    verify(uacQidServiceClient, times(4)).generateUacQid();
+    assertThat(meterRegistry.get("uacqid.pool.requests").tag("result", "hit").counter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("uacqid.pool.requests").tag("result", "miss").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testPoolIsOnlyRefilledOnceBelowLowWatermark() {
+    // Given
+    uacQidPoolProperties.setLowWatermark(2);
+    when(uacQidServiceClient.generateUacQid())
+        .thenReturn(
+            buildUacQidPair("1"), buildUacQidPair("2"), buildUacQidPair("3"), buildUacQidPair("4"))
+        .thenReturn(buildUacQidPair("5"), buildUacQidPair("6"));
+    UacQidPairPool uacQidPairPool = buildPool();
+    uacQidPairPool.getUacQidPair();
+
+    // When
+    uacQidPairPool.getUacQidPair();
+    verify(uacQidServiceClient, times(4)).generateUacQid();
+    uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(uacQidPairPool.size()).isEqualTo(3);
+    verify(uacQidServiceClient, times(6)).generateUacQid();
+  }
+
+  @Test
+  void testBulkFetchRefillsInBatches() {
+    // Given
+    uacQidPoolProperties.setBulkFetchSize(2);
+    when(uacQidServiceClient.generateUacQids(2))
+        .thenReturn(List.of(buildUacQidPair("1"), buildUacQidPair("2")));
+    when(uacQidServiceClient.generateUacQids(1)).thenReturn(List.of(buildUacQidPair("3")));
+    when(uacQidServiceClient.generateUacQid()).thenReturn(buildUacQidPair("4"));
+    UacQidPairPool uacQidPairPool = buildPool();
+
+    // When
+    uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(uacQidPairPool.size()).isEqualTo(3);
+    verify(uacQidServiceClient, times(1)).generateUacQid();
+  }
+
+  @Test
+  void testExpiredPairsAreDiscardedWhenPolled() {
+    // Given
+    when(uacQidServiceClient.generateUacQid())
+        .thenReturn(
+            buildUacQidPair("1"), buildUacQidPair("2"), buildUacQidPair("3"), buildUacQidPair("4"))
+        .thenReturn(
+            buildUacQidPair("5"), buildUacQidPair("6"), buildUacQidPair("7"), buildUacQidPair("8"));
+    UacQidPairPool uacQidPairPool = buildPool();
+    uacQidPairPool.getUacQidPair();
+    nanoTime.addAndGet(Duration.ofMinutes(31).toNanos());
+
+    // When
+    UacQidCreatedPayloadDTO actualUacQidPair = uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(actualUacQidPair.getUac()).isEqualTo("UAC_8");
+    assertThat(uacQidPairPool.size()).isEqualTo(3);
+    assertThat(meterRegistry.get("uacqid.pool.expired").counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("uacqid.pool.requests").tag("result", "miss").counter().count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void testFailedFetchIsSkippedAndOtherPairsArePooled() {
+    // Given
+    when(uacQidServiceClient.generateUacQid())
+        .thenReturn(buildUacQidPair("1"))
+        .thenThrow(new RuntimeException("UAC service unavailable"))
+        .thenReturn(buildUacQidPair("3"), buildUacQidPair("4"));
+    UacQidPairPool uacQidPairPool = buildPool();
+
+    // When
+    UacQidCreatedPayloadDTO missedUacQidPair = uacQidPairPool.getUacQidPair();
+
+    // Then
+    assertThat(missedUacQidPair.getUac()).isEqualTo("UAC_4");
+    assertThat(uacQidPairPool.size()).isEqualTo(2);
+  }
+
+  private UacQidPairPool buildPool() {
+    return new UacQidPairPool(
+        uacQidServiceClient,
+        uacQidPoolProperties,
+        meterRegistry,
+        Runnable::run,
+        Runnable::run,
+        nanoTime::get);
+  }
+
+  private UacQidCreatedPayloadDTO buildUacQidPair(String suffix) {
+    UacQidCreatedPayloadDTO uacQidPair = new UacQidCreatedPayloadDTO();
+    uacQidPair.setUac("UAC_" + suffix);
+    uacQidPair.setQid("QID_" + suffix);
+    return uacQidPair;
+  }
+}
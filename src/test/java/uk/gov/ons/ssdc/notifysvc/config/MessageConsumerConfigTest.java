@@ -0,0 +1,45 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.mock.env.MockEnvironment;
+import uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecoverer;
+
+class MessageConsumerConfigTest {
+
+  @Test
+  void testVirtualThreadsRefusedBeforeJava21() {
+    // Given
+    assumeTrue(JavaVersion.getJavaVersion().isOlderThan(JavaVersion.TWENTY_ONE));
+    MockEnvironment environment =
+        new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+
+    // When
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> buildConfig(environment));
+
+    // Then
+    assertThat(thrown).hasMessageContaining("Java 21");
+  }
+
+  @Test
+  void testPlatformThreadsStartOnAnyJava() {
+    // Given
+    MockEnvironment environment =
+        new MockEnvironment().withProperty("spring.threads.virtual.enabled", "false");
+
+    // When, then
+    assertThat(buildConfig(environment)).isNotNull();
+  }
+
+  private MessageConsumerConfig buildConfig(MockEnvironment environment) {
+    return new MessageConsumerConfig(
+        mock(ManagedMessageRecoverer.class), mock(PubSubTemplate.class), environment);
+  }
+}
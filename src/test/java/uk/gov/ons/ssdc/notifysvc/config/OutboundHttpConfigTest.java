@@ -0,0 +1,78 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+class OutboundHttpConfigTest {
+  private WireMockServer wireMockServer;
+  private OutboundHttpConfig underTest;
+
+  @BeforeEach
+  void setUp() {
+    wireMockServer = new WireMockServer(options().dynamicPort());
+    wireMockServer.start();
+
+    OutboundHttpProperties.Target target = new OutboundHttpProperties.Target();
+    target.setConnectTimeout(Duration.ofSeconds(1));
+    target.setReadTimeout(Duration.ofSeconds(1));
+    target.setMaxConnections(2);
+
+    OutboundHttpProperties outboundHttpProperties = new OutboundHttpProperties();
+    outboundHttpProperties.setIdleTimeout(Duration.ofMinutes(1));
+    outboundHttpProperties.getTargets().put("uacservice", target);
+
+    underTest = new OutboundHttpConfig(new RestTemplateBuilder(), outboundHttpProperties);
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMockServer.stop();
+  }
+
+  @Test
+  void testRestTemplateSendsRequestsToTarget() {
+    // Given
+    wireMockServer.stubFor(get(urlEqualTo("/test")).willReturn(aResponse().withBody("OK")));
+    RestTemplate restTemplate = underTest.uacServiceRestTemplate();
+
+    // When
+    String firstResponse = restTemplate.getForObject(wireMockServer.url("/test"), String.class);
+    String secondResponse = restTemplate.getForObject(wireMockServer.url("/test"), String.class);
+
+    // Then
+    assertThat(firstResponse).isEqualTo("OK");
+    assertThat(secondResponse).isEqualTo("OK");
+  }
+
+  @Test
+  void testRestTemplateTimesOutSlowResponses() {
+    // Given
+    wireMockServer.stubFor(
+        get(urlEqualTo("/slow")).willReturn(aResponse().withBody("OK").withFixedDelay(3000)));
+    RestTemplate restTemplate = underTest.uacServiceRestTemplate();
+
+    // When, then throws
+    assertThrows(
+        ResourceAccessException.class,
+        () -> restTemplate.getForObject(wireMockServer.url("/slow"), String.class));
+  }
+
+  @Test
+  void testMissingTargetSettingsFailFast() {
+    // When, then throws
+    assertThrows(IllegalStateException.class, () -> underTest.exceptionManagerRestTemplate());
+  }
+}
@@ -0,0 +1,59 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaDataSourceConfigTest {
+  private static final String TEST_QUERY = "SELECT 1";
+
+  @Mock DataSource primaryDataSource;
+  @Mock DataSource replicaDataSource;
+  @Mock Connection primaryConnection;
+  @Mock Connection replicaConnection;
+
+  private DataSource underTest;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+    underTest = new ReplicaDataSourceConfig().dataSource(primaryDataSource, replicaDataSource);
+  }
+
+  @Test
+  void testReadOnlyConnectionUsesReplica() throws Exception {
+    // Given
+    when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+    Connection connection = underTest.getConnection();
+
+    // When
+    connection.setReadOnly(true);
+    connection.prepareStatement(TEST_QUERY);
+
+    // Then
+    verify(replicaConnection).prepareStatement(TEST_QUERY);
+    verify(primaryConnection, never()).prepareStatement(TEST_QUERY);
+  }
+
+  @Test
+  void testReadWriteConnectionUsesPrimary() throws Exception {
+    // Given
+    Connection connection = underTest.getConnection();
+
+    // When
+    connection.prepareStatement(TEST_QUERY);
+
+    // Then
+    verify(primaryConnection).prepareStatement(TEST_QUERY);
+    verify(replicaConnection, never()).prepareStatement(TEST_QUERY);
+  }
+}
@@ -0,0 +1,100 @@
+package uk.gov.ons.ssdc.notifysvc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
+import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
+
+@SpringJUnitConfig
+class TemplateCacheTest {
+  private static final SmsTemplateRepository SMS_TEMPLATE_REPOSITORY_MOCK =
+      mock(SmsTemplateRepository.class);
+
+  @Configuration
+  @EnableCaching
+  static class TestConfig {
+    @Bean
+    CacheManager cacheManager() {
+      CaffeineCacheManager cacheManager = new CaffeineCacheManager("smsTemplates");
+      cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(10));
+      return cacheManager;
+    }
+
+    @Bean
+    SmsTemplateRepository smsTemplateRepository() {
+      return SMS_TEMPLATE_REPOSITORY_MOCK;
+    }
+  }
+
+  @Autowired private SmsTemplateRepository smsTemplateRepository;
+  @Autowired private CacheManager cacheManager;
+
+  @BeforeEach
+  void setUp() {
+    reset(SMS_TEMPLATE_REPOSITORY_MOCK);
+    cacheManager.getCache("smsTemplates").clear();
+  }
+
+  @Test
+  void testTemplateIsCachedByPackCode() {
+    // Given
+    SmsTemplate smsTemplate = new SmsTemplate();
+    smsTemplate.setPackCode("TEST_PACK_CODE");
+    when(SMS_TEMPLATE_REPOSITORY_MOCK.findById("TEST_PACK_CODE"))
+        .thenReturn(Optional.of(smsTemplate));
+
+    // When
+    Optional<SmsTemplate> first = smsTemplateRepository.findById("TEST_PACK_CODE");
+    Optional<SmsTemplate> second = smsTemplateRepository.findById("TEST_PACK_CODE");
+
+    // Then
+    assertThat(first).contains(smsTemplate);
+    assertThat(second).contains(smsTemplate);
+    verify(SMS_TEMPLATE_REPOSITORY_MOCK, times(1)).findById("TEST_PACK_CODE");
+  }
+
+  @Test
+  void testUnknownPackCodeIsCachedAsAbsent() {
+    // Given
+    when(SMS_TEMPLATE_REPOSITORY_MOCK.findById("UNKNOWN")).thenReturn(Optional.empty());
+
+    // When
+    Optional<SmsTemplate> first = smsTemplateRepository.findById("UNKNOWN");
+    Optional<SmsTemplate> second = smsTemplateRepository.findById("UNKNOWN");
+
+    // Then
+    assertThat(first).isEmpty();
+    assertThat(second).isEmpty();
+    verify(SMS_TEMPLATE_REPOSITORY_MOCK, times(1)).findById("UNKNOWN");
+  }
+
+  @Test
+  void testEvictingCacheReloadsTemplate() {
+    // Given
+    when(SMS_TEMPLATE_REPOSITORY_MOCK.findById("UNKNOWN")).thenReturn(Optional.empty());
+    smsTemplateRepository.findById("UNKNOWN");
+
+    // When
+    cacheManager.getCache("smsTemplates").clear();
+    smsTemplateRepository.findById("UNKNOWN");
+
+    // Then
+    verify(SMS_TEMPLATE_REPOSITORY_MOCK, times(2)).findById("UNKNOWN");
+  }
+}
@@ -0,0 +1,53 @@
+package uk.gov.ons.ssdc.notifysvc.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+class ConcurrencyLimitInterceptorTest {
+  private final ConcurrencyLimitInterceptor underTest = new ConcurrencyLimitInterceptor(1, 10);
+
+  @Test
+  void testPermitReleasedAfterCompletion() {
+    // Given
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // When
+    assertThat(underTest.preHandle(request, response, null)).isTrue();
+    assertThat(underTest.getAvailablePermits()).isZero();
+    underTest.afterCompletion(request, response, null, null);
+
+    // Then
+    assertThat(underTest.getAvailablePermits()).isEqualTo(1);
+  }
+
+  @Test
+  void testRequestRejectedWhenLimitReached() {
+    // Given
+    MockHttpServletRequest firstRequest = new MockHttpServletRequest();
+    MockHttpServletRequest secondRequest = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    underTest.preHandle(firstRequest, response, null);
+
+    // When
+    ResponseStatusException thrown =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> underTest.preHandle(secondRequest, response, null));
+
+    // Then
+    assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+    // When the rejected request completes it must not release a permit it never took
+    underTest.afterCompletion(secondRequest, response, null, null);
+
+    // Then
+    assertThat(underTest.getAvailablePermits()).isZero();
+  }
+}
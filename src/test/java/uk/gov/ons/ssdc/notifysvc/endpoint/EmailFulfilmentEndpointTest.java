@@ -4,13 +4,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.handler;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
@@ -18,6 +21,8 @@ import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +33,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -37,17 +43,17 @@ import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.CollectionExercise;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
 import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.EmailFulfilment;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.EmailRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
-import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 
 @ExtendWith(MockitoExtension.class)
@@ -67,9 +73,8 @@ class EmailFulfilmentEndpointTest {
 
   @Mock private EmailRequestService emailRequestService;
   @Mock private EmailTemplateRepository emailTemplateRepository;
-  @Mock private CaseRepository caseRepository;
-  @Mock private NotifyServiceRefMapping notifyServiceRefMapping;
-  @Mock NotificationClient notificationClient;
+  @Mock private CaseDataLookup caseDataLookup;
+  @Mock GovNotifyClient govNotifyClient;
 
   @InjectMocks private EmailFulfilmentEndpoint emailFulfilmentEndpoint;
 
@@ -89,17 +94,17 @@ class EmailFulfilmentEndpointTest {
 
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
     String expectedHashedUac = HashHelper.hash(newUacQid.getUac());
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
 
     RequestDTO emailFulfilmentRequest =
         buildEmailFulfilmentRequest(
@@ -133,8 +138,9 @@ class EmailFulfilmentEndpointTest {
 
     // Check the email request
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            eq("test-service"),
             eq(emailTemplate.getNotifyTemplateId().toString()),
             eq(emailFulfilmentRequest.getPayload().getEmailFulfilment().getEmail()),
             templateValuesCaptor.capture(),
@@ -154,17 +160,17 @@ class EmailFulfilmentEndpointTest {
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
 
     String expectedHashedUac = HashHelper.hash(newUacQid.getUac());
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
 
     RequestDTO emailFulfilmentRequest =
         buildEmailFulfilmentRequest(
@@ -197,8 +203,9 @@ class EmailFulfilmentEndpointTest {
             emailFulfilmentRequest.getHeader().getOriginatingUser());
 
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            eq("test-service"),
             eq(emailTemplate.getNotifyTemplateId().toString()),
             eq(emailFulfilmentRequest.getPayload().getEmailFulfilment().getEmail()),
             templateValuesCaptor.capture(),
@@ -216,17 +223,17 @@ class EmailFulfilmentEndpointTest {
     Case testCase = getTestCase();
     EmailTemplate emailTemplate = getTestEmailTemplate(new String[] {});
 
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.empty());
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
 
     RequestDTO emailFulfilmentRequest =
         buildEmailFulfilmentRequest(
@@ -257,8 +264,9 @@ class EmailFulfilmentEndpointTest {
             emailFulfilmentRequest.getHeader().getOriginatingUser());
 
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            eq("test-service"),
             eq(emailTemplate.getNotifyTemplateId().toString()),
             eq(emailFulfilmentRequest.getPayload().getEmailFulfilment().getEmail()),
             templateValuesCaptor.capture(),
@@ -276,20 +284,20 @@ class EmailFulfilmentEndpointTest {
         getTestEmailTemplate(new String[] {TEMPLATE_UAC_KEY, TEMPLATE_QID_KEY});
 
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
 
     // Simulate an error when we attempt to send the email
-    when(notificationClient.sendEmail(any(), any(), any(), any()))
+    when(govNotifyClient.sendEmail(any(), any(), any(), any(), any()))
         .thenThrow(new NotificationClientException("Test"));
 
     RequestDTO emailFulfilmentRequest =
@@ -308,7 +316,7 @@ class EmailFulfilmentEndpointTest {
         .andExpect(handler().handlerType(EmailFulfilmentEndpoint.class));
 
     // Then
-    verify(emailRequestService)
+    verify(emailRequestService, never())
         .buildAndSendEmailConfirmation(
             testCase.getId(),
             emailTemplate.getPackCode(),
@@ -323,8 +331,9 @@ class EmailFulfilmentEndpointTest {
 
     // Check the email request did still happen as expected
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            eq("test-service"),
             eq(emailTemplate.getNotifyTemplateId().toString()),
             eq(emailFulfilmentRequest.getPayload().getEmailFulfilment().getEmail()),
             templateValuesCaptor.capture(),
@@ -336,17 +345,61 @@ class EmailFulfilmentEndpointTest {
         .containsEntry(TEMPLATE_QID_KEY, newUacQid.getQid());
   }
 
+  @Test
+  void testEmailFulfilmentServiceUnavailableWhileCircuitBreakerOpen() throws Exception {
+    // Given
+    Case testCase = getTestCase();
+    EmailTemplate emailTemplate =
+        getTestEmailTemplate(new String[] {TEMPLATE_UAC_KEY, TEMPLATE_QID_KEY});
+
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
+    when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
+        .thenReturn(Optional.of(emailTemplate));
+    when(emailRequestService.isEmailTemplateAllowedOnSurvey(
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
+        .thenReturn(true);
+    when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
+        .thenReturn(Optional.of(getUacQidCreated()));
+    when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
+        .thenReturn(Optional.empty());
+    when(govNotifyClient.sendEmail(any(), any(), any(), any(), any()))
+        .thenThrow(
+            CallNotPermittedException.createCallNotPermittedException(
+                CircuitBreaker.ofDefaults("notify-test-service")));
+
+    RequestDTO emailFulfilmentRequest =
+        buildEmailFulfilmentRequest(
+            testCase.getId(), emailTemplate.getPackCode(), VALID_EMAIL_ADDRESS);
+
+    // When
+    mockMvc
+        .perform(
+            post(EMAIL_FULFILMENT_ENDPOINT)
+                .content(objectMapper.writeValueAsBytes(emailFulfilmentRequest))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+        .andExpect(handler().handlerType(EmailFulfilmentEndpoint.class));
+
+    // Then
+    verify(emailRequestService, never())
+        .buildAndSendEmailConfirmation(
+            any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any());
+  }
+
   @Test
   void testEmailFulfilmentInvalidEmailAddress() throws Exception {
     // Given
     String invalidEmailAddress = "not.valid";
     Case testCase = getTestCase();
     EmailTemplate emailTemplate = getTestEmailTemplate(new String[] {});
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.validateEmailAddress(invalidEmailAddress))
         .thenReturn(
@@ -368,7 +421,7 @@ class EmailFulfilmentEndpointTest {
         .andExpect(handler().handlerType(EmailFulfilmentEndpoint.class));
 
     // Then
-    verifyNoInteractions(notificationClient);
+    verifyNoInteractions(govNotifyClient);
   }
 
   @Test
@@ -377,11 +430,12 @@ class EmailFulfilmentEndpointTest {
     String invalidEmailAddress = "not.valid";
     Case testCase = getTestCase();
     EmailTemplate emailTemplate = getTestEmailTemplate(new String[] {});
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(false);
 
     RequestDTO emailFulfilmentRequest =
@@ -400,7 +454,7 @@ class EmailFulfilmentEndpointTest {
         .andExpect(handler().handlerType(EmailFulfilmentEndpoint.class));
 
     // Then
-    verifyNoInteractions(notificationClient);
+    verifyNoInteractions(govNotifyClient);
   }
 
   @Test
@@ -413,14 +467,14 @@ class EmailFulfilmentEndpointTest {
             testCase.getId(), emailTemplate.getPackCode(), VALID_EMAIL_ADDRESS);
 
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
 
     // When validated, then no exception is thrown
     emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-        validRequest, testCase, emailTemplate);
+        validRequest, testCase.getCollectionExercise().getSurvey().getId(), emailTemplate);
   }
 
   @Test
@@ -438,7 +492,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -459,7 +515,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -475,7 +533,7 @@ class EmailFulfilmentEndpointTest {
             testCase.getId(), emailTemplate.getPackCode(), VALID_EMAIL_ADDRESS);
 
     when(emailRequestService.isEmailTemplateAllowedOnSurvey(
-            emailTemplate, testCase.getCollectionExercise().getSurvey()))
+            emailTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(false);
 
     // When
@@ -484,7 +542,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -507,7 +567,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -532,7 +594,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -557,7 +621,9 @@ class EmailFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 emailFulfilmentEndpoint.validateRequestAndFetchEmailTemplate(
-                    invalidRequest, testCase, emailTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    emailTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -606,9 +672,29 @@ class EmailFulfilmentEndpointTest {
     Case caze = new Case();
     CollectionExercise collex = new CollectionExercise();
     Survey survey = new Survey();
+    survey.setId(UUID.randomUUID());
     collex.setSurvey(survey);
     caze.setId(UUID.randomUUID());
     caze.setCollectionExercise(collex);
     return caze;
   }
+
+  private FulfilmentCaseFields getTestFulfilmentCase(Case caze) {
+    return new FulfilmentCaseFields() {
+      @Override
+      public UUID getSurveyId() {
+        return caze.getCollectionExercise().getSurvey().getId();
+      }
+
+      @Override
+      public String[] getSample() {
+        return new String[0];
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return new String[0];
+      }
+    };
+  }
 }
@@ -4,13 +4,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.handler;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
@@ -28,6 +31,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -37,17 +41,18 @@ import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.CollectionExercise;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
 import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.RequestPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.SmsFulfilment;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.ratelimit.NotifyRateLimitExceededException;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.SmsRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.HashHelper;
-import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 
 @ExtendWith(MockitoExtension.class)
@@ -58,7 +63,6 @@ class SmsFulfilmentEndpointTest {
   private static final String VALID_PHONE_NUMBER = "07123456789";
   private static final String TEST_SOURCE = "TEST_SOURCE";
   private static final String TEST_CHANNEL = "TEST_CHANNEL";
-  private static final String TEST_SENDER = "TEST_SENDER";
 
   private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -68,9 +72,8 @@ class SmsFulfilmentEndpointTest {
 
   @Mock private SmsRequestService smsRequestService;
   @Mock private SmsTemplateRepository smsTemplateRepository;
-  @Mock private CaseRepository caseRepository;
-  @Mock private NotifyServiceRefMapping notifyServiceRefMapping;
-  @Mock NotificationClient notificationClient;
+  @Mock private CaseDataLookup caseDataLookup;
+  @Mock GovNotifyClient govNotifyClient;
 
   @InjectMocks private SmsFulfilmentEndpoint smsFulfilmentEndpoint;
 
@@ -89,17 +92,16 @@ class SmsFulfilmentEndpointTest {
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
     String expectedHashedUac = HashHelper.hash(newUacQid.getUac());
 
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
 
     RequestDTO smsFulfilmentRequest =
         buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
@@ -132,12 +134,12 @@ class SmsFulfilmentEndpointTest {
 
     // Check the SMS request
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            eq("test-service"),
             eq(smsTemplate.getNotifyTemplateId().toString()),
             eq(smsFulfilmentRequest.getPayload().getSmsFulfilment().getPhoneNumber()),
-            templateValuesCaptor.capture(),
-            eq(TEST_SENDER));
+            templateValuesCaptor.capture());
 
     Map<String, String> actualSmsTemplateValues = templateValuesCaptor.getValue();
     assertThat(actualSmsTemplateValues)
@@ -153,17 +155,16 @@ class SmsFulfilmentEndpointTest {
     SmsTemplate smsTemplate = getTestSmsTemplate(new String[] {TEMPLATE_QID_KEY});
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
     String expectedHashedUac = HashHelper.hash(newUacQid.getUac());
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
 
     RequestDTO smsFulfilmentRequest =
         buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
@@ -195,12 +196,12 @@ class SmsFulfilmentEndpointTest {
             smsFulfilmentRequest.getHeader().getOriginatingUser());
 
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            eq("test-service"),
             eq(smsTemplate.getNotifyTemplateId().toString()),
             eq(smsFulfilmentRequest.getPayload().getSmsFulfilment().getPhoneNumber()),
-            templateValuesCaptor.capture(),
-            eq(TEST_SENDER));
+            templateValuesCaptor.capture());
 
     Map<String, String> actualSmsTemplateValues = templateValuesCaptor.getValue();
     assertThat(actualSmsTemplateValues)
@@ -214,17 +215,16 @@ class SmsFulfilmentEndpointTest {
     Case testCase = getTestCase();
     SmsTemplate smsTemplate = getTestSmsTemplate(new String[] {});
 
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.empty());
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
 
     RequestDTO smsFulfilmentRequest =
         buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
@@ -254,12 +254,12 @@ class SmsFulfilmentEndpointTest {
             smsFulfilmentRequest.getHeader().getOriginatingUser());
 
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            eq("test-service"),
             eq(smsTemplate.getNotifyTemplateId().toString()),
             eq(smsFulfilmentRequest.getPayload().getSmsFulfilment().getPhoneNumber()),
-            templateValuesCaptor.capture(),
-            eq(TEST_SENDER));
+            templateValuesCaptor.capture());
 
     Map<String, String> actualSmsTemplateValues = templateValuesCaptor.getValue();
     assertThat(actualSmsTemplateValues).isEmpty();
@@ -272,20 +272,19 @@ class SmsFulfilmentEndpointTest {
     SmsTemplate smsTemplate = getTestSmsTemplate(new String[] {TEMPLATE_UAC_KEY, TEMPLATE_QID_KEY});
     UacQidCreatedPayloadDTO newUacQid = getUacQidCreated();
 
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQid));
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
 
     // Simulate an error when we attempt to send the SMS
-    when(notificationClient.sendSms(any(), any(), any(), any()))
+    when(govNotifyClient.sendSms(any(), any(), any(), any()))
         .thenThrow(new NotificationClientException("Test"));
 
     RequestDTO smsFulfilmentRequest =
@@ -309,7 +308,7 @@ class SmsFulfilmentEndpointTest {
         .andExpect(handler().handlerType(SmsFulfilmentEndpoint.class));
 
     // Then
-    verify(smsRequestService)
+    verify(smsRequestService, never())
         .buildAndSendSmsConfirmation(
             testCase.getId(),
             smsTemplate.getPackCode(),
@@ -324,12 +323,12 @@ class SmsFulfilmentEndpointTest {
 
     // Check the SMS request did still happen as expected
     ArgumentCaptor<Map<String, String>> templateValuesCaptor = ArgumentCaptor.forClass(Map.class);
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            eq("test-service"),
             eq(smsTemplate.getNotifyTemplateId().toString()),
             eq(smsFulfilmentRequest.getPayload().getSmsFulfilment().getPhoneNumber()),
-            templateValuesCaptor.capture(),
-            eq(TEST_SENDER));
+            templateValuesCaptor.capture());
 
     Map<String, String> actualSmsTemplateValues = templateValuesCaptor.getValue();
     assertThat(actualSmsTemplateValues)
@@ -337,17 +336,54 @@ class SmsFulfilmentEndpointTest {
         .containsEntry(TEMPLATE_QID_KEY, newUacQid.getQid());
   }
 
+  @Test
+  void testSmsFulfilmentServiceUnavailableWhenRateLimitFullyReserved() throws Exception {
+    // Given
+    Case testCase = getTestCase();
+    SmsTemplate smsTemplate = getTestSmsTemplate(new String[] {TEMPLATE_UAC_KEY, TEMPLATE_QID_KEY});
+
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
+    when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
+        .thenReturn(Optional.of(smsTemplate));
+    when(smsRequestService.isSmsTemplateAllowedOnSurvey(
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
+        .thenReturn(true);
+    when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
+        .thenReturn(Optional.of(getUacQidCreated()));
+    when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
+    when(govNotifyClient.sendSms(any(), any(), any(), any()))
+        .thenThrow(new NotifyRateLimitExceededException("Test"));
+
+    RequestDTO smsFulfilmentRequest =
+        buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
+
+    // When, then
+    mockMvc
+        .perform(
+            post(SMS_FULFILMENT_ENDPOINT)
+                .content(objectMapper.writeValueAsBytes(smsFulfilmentRequest))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+        .andExpect(handler().handlerType(SmsFulfilmentEndpoint.class));
+    verify(smsRequestService, never())
+        .buildAndSendSmsConfirmation(
+            any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any());
+  }
+
   @Test
   void testSmsFulfilmentInvalidPhoneNumber() throws Exception {
     // Given
     String invalidPhoneNumber = "07123 INVALID";
     Case testCase = getTestCase();
     SmsTemplate smsTemplate = getTestSmsTemplate(new String[] {});
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.validatePhoneNumber(invalidPhoneNumber))
         .thenReturn(false); // TODO how did this pass without this mock?
@@ -366,7 +402,50 @@ class SmsFulfilmentEndpointTest {
         .andExpect(handler().handlerType(SmsFulfilmentEndpoint.class));
 
     // Then
-    verifyNoInteractions(notificationClient);
+    verifyNoInteractions(govNotifyClient);
+  }
+
+  @Test
+  void testSmsFulfilmentCaseNotFoundReportedBeforeTemplate() throws Exception {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    when(smsTemplateRepository.findById("UNKNOWN")).thenReturn(Optional.empty());
+    when(caseDataLookup.findFulfilmentCase(eq(caseId), any())).thenReturn(Optional.empty());
+
+    RequestDTO smsFulfilmentRequest =
+        buildSmsFulfilmentRequest(caseId, "UNKNOWN", VALID_PHONE_NUMBER);
+
+    // When, then
+    mockMvc
+        .perform(
+            post(SMS_FULFILMENT_ENDPOINT)
+                .content(objectMapper.writeValueAsBytes(smsFulfilmentRequest))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("error", is("The case does not exist")));
+    verifyNoInteractions(govNotifyClient);
+  }
+
+  @Test
+  void testSmsFulfilmentTemplateNotFound() throws Exception {
+    // Given
+    Case testCase = getTestCase();
+    when(smsTemplateRepository.findById("UNKNOWN")).thenReturn(Optional.empty());
+    when(caseDataLookup.findFulfilmentCase(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(getTestFulfilmentCase(testCase)));
+
+    RequestDTO smsFulfilmentRequest =
+        buildSmsFulfilmentRequest(testCase.getId(), "UNKNOWN", VALID_PHONE_NUMBER);
+
+    // When, then
+    mockMvc
+        .perform(
+            post(SMS_FULFILMENT_ENDPOINT)
+                .content(objectMapper.writeValueAsBytes(smsFulfilmentRequest))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("error", is("A template does not exist with this pack code")));
+    verifyNoInteractions(govNotifyClient);
   }
 
   @Test
@@ -378,12 +457,13 @@ class SmsFulfilmentEndpointTest {
         buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
 
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(true);
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
 
     // When validated, then no exception is thrown
-    smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(validRequest, testCase, smsTemplate);
+    smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(
+        validRequest, testCase.getCollectionExercise().getSurvey().getId(), smsTemplate);
   }
 
   @Test
@@ -395,7 +475,7 @@ class SmsFulfilmentEndpointTest {
         buildSmsFulfilmentRequest(testCase.getId(), smsTemplate.getPackCode(), VALID_PHONE_NUMBER);
 
     when(smsRequestService.isSmsTemplateAllowedOnSurvey(
-            smsTemplate, testCase.getCollectionExercise().getSurvey()))
+            smsTemplate, testCase.getCollectionExercise().getSurvey().getId()))
         .thenReturn(false);
 
     // When
@@ -404,7 +484,9 @@ class SmsFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(
-                    invalidRequest, testCase, smsTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    smsTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -428,7 +510,9 @@ class SmsFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(
-                    invalidRequest, testCase, smsTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    smsTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -452,7 +536,9 @@ class SmsFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(
-                    invalidRequest, testCase, smsTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    smsTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -476,7 +562,9 @@ class SmsFulfilmentEndpointTest {
             ResponseStatusException.class,
             () ->
                 smsFulfilmentEndpoint.validateRequestAndFetchSmsTemplate(
-                    invalidRequest, testCase, smsTemplate));
+                    invalidRequest,
+                    testCase.getCollectionExercise().getSurvey().getId(),
+                    smsTemplate));
 
     // Then
     assertThat(thrown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -527,9 +615,29 @@ class SmsFulfilmentEndpointTest {
     Case caze = new Case();
     CollectionExercise collex = new CollectionExercise();
     Survey survey = new Survey();
+    survey.setId(UUID.randomUUID());
     collex.setSurvey(survey);
     caze.setId(UUID.randomUUID());
     caze.setCollectionExercise(collex);
     return caze;
   }
+
+  private FulfilmentCaseFields getTestFulfilmentCase(Case caze) {
+    return new FulfilmentCaseFields() {
+      @Override
+      public UUID getSurveyId() {
+        return caze.getCollectionExercise().getSurvey().getId();
+      }
+
+      @Override
+      public String[] getSample() {
+        return new String[0];
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return new String[0];
+      }
+    };
+  }
 }
@@ -3,7 +3,6 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 import static java.util.Map.entry;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.buildEventDTO;
 import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.constructMessageWithValidTimeStamp;
@@ -13,6 +12,7 @@ import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
 
+import com.google.protobuf.ByteString;
 import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.Optional;
@@ -26,23 +26,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.EmailRequestService;
-import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 
 @ExtendWith(MockitoExtension.class)
 class EmailRequestEnrichedReceiverTest {
   @Mock EmailTemplateRepository emailTemplateRepository;
-  @Mock CaseRepository caseRepository;
+  @Mock CaseDataLookup caseDataLookup;
   @Mock EmailRequestService emailRequestService;
-  @Mock NotifyServiceRefMapping notifyServiceRefMapping;
-  @Mock NotificationClient notificationClient;
+  @Mock GovNotifyClient govNotifyClient;
 
   @InjectMocks EmailRequestEnrichedReceiver emailRequestEnrichedReceiver;
 
@@ -89,17 +88,19 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
     // When
     emailRequestEnrichedReceiver.receiveMessage(eventMessage);
 
     // Then
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            "test-service",
             emailTemplate.getNotifyTemplateId().toString(),
             emailRequestEnrichedEvent.getPayload().getEmailRequestEnriched().getEmail(),
             personalisationValues,
@@ -138,17 +139,19 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
     // When
     emailRequestEnrichedReceiver.receiveMessage(eventMessage);
 
     // Then
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendEmail(
+            "test-service",
             emailTemplate.getNotifyTemplateId().toString(),
             emailRequestEnrichedEvent.getPayload().getEmailRequestEnriched().getEmail(),
             personalisationValues,
@@ -186,12 +189,13 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
-    when(notificationClient.sendEmail(any(), any(), any(), any()))
+    when(govNotifyClient.sendEmail(any(), any(), any(), any(), any()))
         .thenThrow(new NotificationClientException("Test Throw"));
 
     // When
@@ -236,10 +240,11 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
     NotificationClientException notificationClientException =
         new NotificationClientException("Test Throw");
@@ -248,7 +253,7 @@ class EmailRequestEnrichedReceiverTest {
     field.setAccessible(true);
     field.set(notificationClientException, RATE_LIMIT_ERROR_HTTP_STATUS);
 
-    when(notificationClient.sendEmail(any(), any(), any(), any()))
+    when(govNotifyClient.sendEmail(any(), any(), any(), any(), any()))
         .thenThrow(notificationClientException);
 
     // When
@@ -270,7 +275,8 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(any())).thenReturn(Optional.empty());
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
     // When
     RuntimeException thrown =
@@ -309,9 +315,11 @@ class EmailRequestEnrichedReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.empty());
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.empty());
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
+    Message<ByteString> eventMessage =
+        constructMessageWithValidTimeStamp(emailRequestEnrichedEvent);
 
     // When
     RuntimeException thrown =
@@ -320,4 +328,18 @@ class EmailRequestEnrichedReceiverTest {
             () -> emailRequestEnrichedReceiver.receiveMessage(eventMessage));
     assertThat(thrown.getMessage()).isEqualTo("Case not found with ID: " + testCase.getId());
   }
+
+  private CasePersonalisationFields caseFields(String[] sample, String[] sampleSensitive) {
+    return new CasePersonalisationFields() {
+      @Override
+      public String[] getSample() {
+        return sample;
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return sampleSensitive;
+      }
+    };
+  }
 }
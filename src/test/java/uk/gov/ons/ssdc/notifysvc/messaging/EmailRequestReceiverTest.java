@@ -2,6 +2,7 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -11,6 +12,7 @@ import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.constructMe
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
 
+import com.google.protobuf.ByteString;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,8 +31,9 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequest;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.EmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.EmailRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
@@ -38,9 +41,10 @@ import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 class EmailRequestReceiverTest {
 
   @Mock EmailTemplateRepository emailTemplateRepository;
-  @Mock CaseRepository caseRepository;
+  @Mock CaseDataLookup caseDataLookup;
   @Mock EmailRequestService emailRequestService;
   @Mock PubSubHelper pubSubHelper;
+  @Mock OutboxEventStore outboxEventStore;
 
   @InjectMocks EmailRequestReceiver emailRequestReceiver;
 
@@ -71,7 +75,7 @@ class EmailRequestReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQidCreated));
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
@@ -86,7 +90,7 @@ class EmailRequestReceiverTest {
     emailRequest.setUacMetadata(TEST_UAC_METADATA);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When
     emailRequestReceiver.receiveMessage(eventMessage);
@@ -94,7 +98,7 @@ class EmailRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(emailRequestEvent.getHeader().getCorrelationId());
@@ -106,7 +110,7 @@ class EmailRequestReceiverTest {
     assertThat(emailRequestEnriched.getQid()).isEqualTo(newUacQidCreated.getQid());
 
     verify(emailRequestService)
-        .buildAndSendEmailConfirmation(
+        .buildEmailConfirmationEvent(
             testCase.getId(),
             emailTemplate.getPackCode(),
             emailRequestEvent.getPayload().getEmailRequest().getUacMetadata(),
@@ -135,7 +139,7 @@ class EmailRequestReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQidCreated));
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
@@ -149,7 +153,7 @@ class EmailRequestReceiverTest {
     emailRequest.setUacMetadata(TEST_UAC_METADATA);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When
     emailRequestReceiver.receiveMessage(eventMessage);
@@ -157,7 +161,7 @@ class EmailRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(emailRequestEvent.getHeader().getCorrelationId());
@@ -169,7 +173,7 @@ class EmailRequestReceiverTest {
     assertThat(emailRequestEnriched.getQid()).isEqualTo(newUacQidCreated.getQid());
 
     verify(emailRequestService)
-        .buildAndSendEmailConfirmation(
+        .buildEmailConfirmationEvent(
             testCase.getId(),
             emailTemplate.getPackCode(),
             emailRequestEvent.getPayload().getEmailRequest().getUacMetadata(),
@@ -194,7 +198,7 @@ class EmailRequestReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.empty());
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
@@ -208,7 +212,7 @@ class EmailRequestReceiverTest {
     emailRequest.setUacMetadata(TEST_UAC_METADATA);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When
     emailRequestReceiver.receiveMessage(eventMessage);
@@ -216,7 +220,7 @@ class EmailRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(emailRequestEvent.getHeader().getCorrelationId());
@@ -228,7 +232,7 @@ class EmailRequestReceiverTest {
     assertThat(emailRequestEnriched.getQid()).isNull();
 
     verify(emailRequestService)
-        .buildAndSendEmailConfirmation(
+        .buildEmailConfirmationEvent(
             testCase.getId(),
             emailTemplate.getPackCode(),
             emailRequestEvent.getPayload().getEmailRequest().getUacMetadata(),
@@ -253,7 +257,7 @@ class EmailRequestReceiverTest {
 
     when(emailTemplateRepository.findById(emailTemplate.getPackCode()))
         .thenReturn(Optional.of(emailTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(emailRequestService.fetchNewUacQidPairIfRequired(emailTemplate.getTemplate()))
         .thenReturn(Optional.empty());
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
@@ -268,7 +272,7 @@ class EmailRequestReceiverTest {
     emailRequest.setPersonalisation(TEST_PERSONALISATION);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When
     emailRequestReceiver.receiveMessage(eventMessage);
@@ -276,7 +280,7 @@ class EmailRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(emailRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(emailRequestEvent.getHeader().getCorrelationId());
@@ -288,7 +292,7 @@ class EmailRequestReceiverTest {
     assertThat(emailRequestEnriched.getQid()).isNull();
 
     verify(emailRequestService)
-        .buildAndSendEmailConfirmation(
+        .buildEmailConfirmationEvent(
             testCase.getId(),
             emailTemplate.getPackCode(),
             emailRequestEvent.getPayload().getEmailRequest().getUacMetadata(),
@@ -323,7 +327,7 @@ class EmailRequestReceiverTest {
     emailRequest.setEmail(invalidEmailAddress);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When, then throws
     Exception thrown =
@@ -331,7 +335,7 @@ class EmailRequestReceiverTest {
             RuntimeException.class, () -> emailRequestReceiver.receiveMessage(eventMessage));
 
     assertThat(thrown.getMessage()).containsIgnoringCase("invalid email address");
-    verifyNoInteractions(caseRepository);
+    verifyNoInteractions(caseDataLookup);
     verifyNoInteractions(emailTemplateRepository);
     verifyNoInteractions(pubSubHelper);
   }
@@ -354,7 +358,7 @@ class EmailRequestReceiverTest {
         .thenReturn(Optional.of(emailTemplate));
     when(emailRequestService.validateEmailAddress(VALID_EMAIL_ADDRESS))
         .thenReturn(Optional.empty());
-    when(caseRepository.existsById(testCase.getId())).thenReturn(false);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(false);
 
     EventDTO emailRequestEvent = buildEventDTO(emailRequestEnrichedTopic);
     EmailRequest emailRequest = new EmailRequest();
@@ -363,7 +367,7 @@ class EmailRequestReceiverTest {
     emailRequest.setEmail(VALID_EMAIL_ADDRESS);
     emailRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(emailRequestEvent);
 
     // When, then throws
     Exception thrown =
@@ -400,7 +404,7 @@ class EmailRequestReceiverTest {
     emailRequest.setEmail(VALID_EMAIL_ADDRESS);
     smsRequestEvent.getPayload().setEmailRequest(emailRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When, then throws
     Exception thrown =
@@ -408,7 +412,7 @@ class EmailRequestReceiverTest {
             RuntimeException.class, () -> emailRequestReceiver.receiveMessage(eventMessage));
 
     assertThat(thrown.getMessage()).containsIgnoringCase("Email template not found");
-    verifyNoInteractions(caseRepository);
+    verifyNoInteractions(caseDataLookup);
     verifyNoInteractions(pubSubHelper);
   }
 }
@@ -9,17 +9,23 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.Message;
@@ -40,7 +46,20 @@ class ManagedMessageRecovererTest {
 
   @Mock private ExceptionManagerClient exceptionManagerClient;
 
-  @InjectMocks private ManagedMessageRecoverer underTest;
+  private final ExceptionReportCacheProperties exceptionReportCacheProperties =
+      new ExceptionReportCacheProperties();
+
+  private ManagedMessageRecoverer underTest;
+
+  @BeforeEach
+  public void setUp() {
+    exceptionReportCacheProperties.setMaximumSize(100);
+    exceptionReportCacheProperties.setExpireAfterWrite(Duration.ofMinutes(10));
+    exceptionReportCacheProperties.setRefreshAfterWrite(Duration.ofMinutes(1));
+    underTest =
+        new ManagedMessageRecoverer(
+            exceptionManagerClient, exceptionReportCacheProperties, new SimpleMeterRegistry());
+  }
 
   @Test
   public void testRecover() {
@@ -58,7 +77,8 @@ class ManagedMessageRecovererTest {
             eq(TEST_MESSAGE_HASH),
             eq("Notify Service"),
             eq("TEST SUBSCRIPTION"),
-            any(Throwable.class),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
             anyString());
     verify(originalMessage, never()).nack();
     verify(originalMessage, never()).ack();
@@ -66,6 +86,28 @@ class ManagedMessageRecovererTest {
         .isEqualTo("Cannot process this message at this time, but it will be retried");
   }
 
+  @Test
+  public void testRecoverNacksWithoutReportingWhenCircuitBreakerOpen() {
+    // Given
+    Message<?> message = mock(Message.class);
+    CallNotPermittedException callNotPermittedException =
+        CallNotPermittedException.createCallNotPermittedException(
+            CircuitBreaker.ofDefaults("uacservice"));
+    RetryContext retryContext = mock(RetryContext.class);
+    when(retryContext.getLastThrowable())
+        .thenReturn(
+            new MessagingException(message, new RuntimeException(callNotPermittedException)));
+
+    // When
+    MessageHandlingException thrownException =
+        assertThrows(MessageHandlingException.class, () -> underTest.recover(retryContext));
+
+    // Then
+    verifyNoInteractions(exceptionManagerClient);
+    assertThat(thrownException.getMessage())
+        .isEqualTo("Cannot process this message at this time, but it will be retried");
+  }
+
   @Test
   public void testRecoverLogIt() {
     // Given
@@ -83,7 +125,8 @@ class ManagedMessageRecovererTest {
             eq(TEST_MESSAGE_HASH),
             eq("Notify Service"),
             eq("TEST SUBSCRIPTION"),
-            any(RuntimeException.class),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
             contains(
                 "uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecovererTest.testSetupTestRecover"));
     verify(originalMessage, never()).nack();
@@ -108,7 +151,8 @@ class ManagedMessageRecovererTest {
             eq(TEST_MESSAGE_HASH),
             eq("Notify Service"),
             eq("TEST SUBSCRIPTION"),
-            any(RuntimeException.class),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
             contains(
                 "uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecovererTest.testSetupTestRecover"));
     verify(originalMessage, never()).nack();
@@ -145,7 +189,8 @@ class ManagedMessageRecovererTest {
             eq(TEST_MESSAGE_HASH),
             eq("Notify Service"),
             eq("TEST SUBSCRIPTION"),
-            any(RuntimeException.class),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
             contains(
                 "uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecovererTest.testSetupTestRecover"));
     verify(originalMessage, never()).nack();
@@ -171,7 +216,8 @@ class ManagedMessageRecovererTest {
             eq(TEST_MESSAGE_HASH),
             eq("Notify Service"),
             eq("TEST SUBSCRIPTION"),
-            any(RuntimeException.class),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
             contains(
                 "uk.gov.ons.ssdc.notifysvc.messaging.ManagedMessageRecovererTest.testSetupTestRecover"));
     verify(originalMessage, never()).nack();
@@ -182,6 +228,55 @@ class ManagedMessageRecovererTest {
     verify(exceptionManagerClient).respondToPeek(TEST_MESSAGE_HASH, "TEST PAYLOAD".getBytes());
   }
 
+  @Test
+  public void testRecoverRepeatedFailureReportedOnceWhenCached() {
+    // Given
+    exceptionReportCacheProperties.setEnabled(true);
+    ExceptionReportResponse exceptionReportResponse = new ExceptionReportResponse();
+    exceptionReportResponse.setLogIt(true);
+    RetryContext retryContext = testSetupTestRecover(exceptionReportResponse);
+
+    // When
+    assertThrows(MessageHandlingException.class, () -> underTest.recover(retryContext));
+    assertThrows(MessageHandlingException.class, () -> underTest.recover(retryContext));
+
+    // Then
+    verify(exceptionManagerClient)
+        .reportException(
+            eq(TEST_MESSAGE_HASH),
+            eq("Notify Service"),
+            eq("TEST SUBSCRIPTION"),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
+            anyString());
+  }
+
+  @Test
+  public void testRecoverSkipDecisionNotCached() {
+    // Given
+    exceptionReportCacheProperties.setEnabled(true);
+    ExceptionReportResponse exceptionReportResponse = new ExceptionReportResponse();
+    exceptionReportResponse.setSkipIt(true);
+    RetryContext retryContext = testSetupTestRecover(exceptionReportResponse);
+    doThrow(new RuntimeException("Exception manager unavailable"))
+        .when(exceptionManagerClient)
+        .storeMessageBeforeSkipping(any(SkippedMessage.class));
+
+    // When
+    assertThrows(MessageHandlingException.class, () -> underTest.recover(retryContext));
+    assertThrows(MessageHandlingException.class, () -> underTest.recover(retryContext));
+
+    // Then
+    verify(exceptionManagerClient, times(2))
+        .reportException(
+            eq(TEST_MESSAGE_HASH),
+            eq("Notify Service"),
+            eq("TEST SUBSCRIPTION"),
+            eq(RuntimeException.class.getName()),
+            eq("TEST EXCEPTION"),
+            anyString());
+  }
+
   private RetryContext testSetupTestRecover(ExceptionReportResponse exceptionReportResponse) {
     MessagingException messagingException = mock(MessagingException.class);
     when(messagingException.getCause())
@@ -206,7 +301,7 @@ class ManagedMessageRecovererTest {
     when(originalMessage.getPubsubMessage()).thenReturn(pubsubMessage);
 
     when(exceptionManagerClient.reportException(
-            anyString(), anyString(), anyString(), any(Throwable.class), anyString()))
+            anyString(), anyString(), anyString(), anyString(), any(), anyString()))
         .thenReturn(exceptionReportResponse);
     return retryContext;
   }
@@ -0,0 +1,79 @@
+package uk.gov.ons.ssdc.notifysvc.messaging;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+@ExtendWith(MockitoExtension.class)
+class PubSubAckInterceptorTest {
+  @Mock BasicAcknowledgeablePubsubMessage originalMessage;
+  @Mock MessageChannel messageChannel;
+  @Mock MessageHandler messageHandler;
+
+  private final PubSubAckInterceptor underTest = new PubSubAckInterceptor();
+
+  @Test
+  void testMessageAckedWhenHandledSuccessfully() {
+    // Given
+    Message<byte[]> message = buildMessage();
+    when(originalMessage.ack()).thenReturn(CompletableFuture.completedFuture(null));
+
+    // When
+    underTest.afterMessageHandled(message, messageChannel, messageHandler, null);
+
+    // Then
+    verify(originalMessage).ack();
+    verify(originalMessage, never()).nack();
+  }
+
+  @Test
+  void testMessageNackedWhenHandlerFails() {
+    // Given
+    Message<byte[]> message = buildMessage();
+    when(originalMessage.nack()).thenReturn(CompletableFuture.completedFuture(null));
+
+    // When
+    underTest.afterMessageHandled(
+        message, messageChannel, messageHandler, new RuntimeException("TEST EXCEPTION"));
+
+    // Then
+    verify(originalMessage).nack();
+    verify(originalMessage, never()).ack();
+  }
+
+  @Test
+  void testFailedAckIsLoggedNotThrown() {
+    // Given
+    Message<byte[]> message = buildMessage();
+    when(originalMessage.ack())
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("TEST EXCEPTION")));
+    when(originalMessage.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setMessageId("TEST_MESSAGE_ID").build());
+
+    // When
+    underTest.afterMessageHandled(message, messageChannel, messageHandler, null);
+
+    // Then
+    verify(originalMessage).getPubsubMessage();
+  }
+
+  private Message<byte[]> buildMessage() {
+    return MessageBuilder.withPayload("{}".getBytes(UTF_8))
+        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, originalMessage)
+        .build();
+  }
+}
@@ -1,14 +1,18 @@
 package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static java.util.Map.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.buildEventDTO;
 import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.constructMessageWithValidTimeStamp;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_SENSITIVE_PREFIX;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
 
+import com.google.protobuf.ByteString;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,26 +25,25 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import uk.gov.ons.ssdc.common.model.entity.Case;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
-import uk.gov.ons.ssdc.notifysvc.config.NotifyServiceRefMapping;
+import uk.gov.ons.ssdc.notifysvc.client.GovNotifyClient;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
-import uk.gov.service.notify.NotificationClient;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
 import uk.gov.service.notify.NotificationClientException;
 
 @ExtendWith(MockitoExtension.class)
 class SmsRequestEnrichedReceiverTest {
   @Mock SmsTemplateRepository smsTemplateRepository;
-  @Mock CaseRepository caseRepository;
-  @Mock private NotifyServiceRefMapping notifyServiceRefMapping;
-  @Mock NotificationClient notificationClient;
+  @Mock CaseDataLookup caseDataLookup;
+  @Mock GovNotifyClient govNotifyClient;
   @InjectMocks SmsRequestEnrichedReceiver smsRequestEnrichedReceiver;
 
   private final String TEST_UAC = "TEST_UAC";
   private final String TEST_QID = "TEST_QID";
-  private final String TEST_SENDER = "TEST_SENDER";
   private final Map<String, String> TEST_PERSONALISATION = Map.of("foo", "bar");
 
   @Value("${queueconfig.sms-request-enriched-topic}")
@@ -82,22 +85,21 @@ class SmsRequestEnrichedReceiverTest {
 
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
 
     // When
     smsRequestEnrichedReceiver.receiveMessage(eventMessage);
 
     // Then
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            "test-service",
             smsTemplate.getNotifyTemplateId().toString(),
             smsRequestEnrichedEvent.getPayload().getSmsRequestEnriched().getPhoneNumber(),
-            personalisationValues,
-            TEST_SENDER);
+            personalisationValues);
   }
 
   @Test
@@ -131,22 +133,21 @@ class SmsRequestEnrichedReceiverTest {
 
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
 
     // When
     smsRequestEnrichedReceiver.receiveMessage(eventMessage);
 
     // Then
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            "test-service",
             smsTemplate.getNotifyTemplateId().toString(),
             smsRequestEnrichedEvent.getPayload().getSmsRequestEnriched().getPhoneNumber(),
-            personalisationValues,
-            TEST_SENDER);
+            personalisationValues);
   }
 
   @Test
@@ -180,21 +181,82 @@ class SmsRequestEnrichedReceiverTest {
 
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
-    when(caseRepository.findById(testCase.getId())).thenReturn(Optional.of(testCase));
-    when(notifyServiceRefMapping.getNotifyClient("test-service")).thenReturn(notificationClient);
-    when(notifyServiceRefMapping.getSenderId("test-service")).thenReturn(TEST_SENDER);
+    when(caseDataLookup.findPersonalisationFields(eq(testCase.getId()), any()))
+        .thenReturn(Optional.of(caseFields(new String[0], new String[0])));
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
 
     // When
     smsRequestEnrichedReceiver.receiveMessage(eventMessage);
 
     // Then
-    verify(notificationClient)
+    verify(govNotifyClient)
         .sendSms(
+            "test-service",
             smsTemplate.getNotifyTemplateId().toString(),
             smsRequestEnrichedEvent.getPayload().getSmsRequestEnriched().getPhoneNumber(),
-            personalisationValues,
-            TEST_SENDER);
+            personalisationValues);
+  }
+
+  @Test
+  void testReceiveMessageSampleFieldsOnTemplate() throws NotificationClientException {
+
+    // Given
+    Case testCase = new Case();
+    testCase.setId(UUID.randomUUID());
+
+    SmsTemplate smsTemplate = new SmsTemplate();
+    smsTemplate.setPackCode("TEST_PACK_CODE");
+    smsTemplate.setTemplate(
+        new String[] {"firstName", TEMPLATE_SENSITIVE_PREFIX + "phoneNumber", "lastName"});
+    smsTemplate.setNotifyTemplateId(UUID.randomUUID());
+    smsTemplate.setNotifyServiceRef("test-service");
+
+    EventDTO smsRequestEnrichedEvent = buildEventDTO(smsRequestEnrichedTopic);
+    SmsRequestEnriched smsRequestEnriched = new SmsRequestEnriched();
+    smsRequestEnriched.setCaseId(testCase.getId());
+    smsRequestEnriched.setPackCode("TEST_PACK_CODE");
+    smsRequestEnriched.setPhoneNumber("07564283939");
+    smsRequestEnrichedEvent.getPayload().setSmsRequestEnriched(smsRequestEnriched);
+
+    Map<String, String> personalisationValues =
+        Map.ofEntries(
+            entry("firstName", "Jo"),
+            entry("lastName", "Bloggs"),
+            entry(TEMPLATE_SENSITIVE_PREFIX + "phoneNumber", "07123456789"));
+
+    when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
+        .thenReturn(Optional.of(smsTemplate));
+    when(caseDataLookup.findPersonalisationFields(
+            testCase.getId(), PersonalisationPlan.forTemplate(smsTemplate.getTemplate())))
+        .thenReturn(
+            Optional.of(caseFields(new String[] {"Jo", "Bloggs"}, new String[] {"07123456789"})));
+
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEnrichedEvent);
+
+    // When
+    smsRequestEnrichedReceiver.receiveMessage(eventMessage);
+
+    // Then
+    verify(govNotifyClient)
+        .sendSms(
+            "test-service",
+            smsTemplate.getNotifyTemplateId().toString(),
+            smsRequestEnrichedEvent.getPayload().getSmsRequestEnriched().getPhoneNumber(),
+            personalisationValues);
+  }
+
+  private CasePersonalisationFields caseFields(String[] sample, String[] sampleSensitive) {
+    return new CasePersonalisationFields() {
+      @Override
+      public String[] getSample() {
+        return sample;
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return sampleSensitive;
+      }
+    };
   }
 }
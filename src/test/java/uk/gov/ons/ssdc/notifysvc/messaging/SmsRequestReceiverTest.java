@@ -2,7 +2,10 @@ package uk.gov.ons.ssdc.notifysvc.messaging;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -11,12 +14,15 @@ import static uk.gov.ons.ssdc.notifysvc.testUtils.MessageConstructor.constructMe
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
 import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_UAC_KEY;
 
+import com.google.protobuf.ByteString;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -28,8 +34,9 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequest;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
-import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
 import uk.gov.ons.ssdc.notifysvc.model.repository.SmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
+import uk.gov.ons.ssdc.notifysvc.service.CaseDataLookup;
 import uk.gov.ons.ssdc.notifysvc.service.SmsRequestService;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
@@ -37,9 +44,10 @@ import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 class SmsRequestReceiverTest {
 
   @Mock SmsTemplateRepository smsTemplateRepository;
-  @Mock CaseRepository caseRepository;
+  @Mock CaseDataLookup caseDataLookup;
   @Mock SmsRequestService smsRequestService;
   @Mock PubSubHelper pubSubHelper;
+  @Mock OutboxEventStore outboxEventStore;
 
   @InjectMocks SmsRequestReceiver smsRequestReceiver;
 
@@ -68,7 +76,7 @@ class SmsRequestReceiverTest {
 
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.of(newUacQidCreated));
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
@@ -81,7 +89,7 @@ class SmsRequestReceiverTest {
     smsRequest.setUacMetadata(TEST_UAC_METADATA);
     smsRequestEvent.getPayload().setSmsRequest(smsRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When
     smsRequestReceiver.receiveMessage(eventMessage);
@@ -89,7 +97,7 @@ class SmsRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(smsRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(smsRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(smsRequestEvent.getHeader().getCorrelationId());
@@ -101,7 +109,7 @@ class SmsRequestReceiverTest {
     assertThat(smsRequestEnriched.getQid()).isEqualTo(newUacQidCreated.getQid());
 
     verify(smsRequestService)
-        .buildAndSendSmsConfirmation(
+        .buildSmsConfirmationEvent(
             testCase.getId(),
             smsTemplate.getPackCode(),
             smsRequestEvent.getPayload().getSmsRequest().getUacMetadata(),
@@ -114,6 +122,100 @@ class SmsRequestReceiverTest {
             smsRequestEvent.getHeader().getOriginatingUser());
   }
 
+  @Test
+  void testReceiveMessageWithUacQidAwaitsConfirmationBeforeEnrichedPublish() {
+    // Given
+    Case testCase = new Case();
+    testCase.setId(UUID.randomUUID());
+
+    SmsTemplate smsTemplate = new SmsTemplate();
+    smsTemplate.setPackCode("TEST_PACK_CODE");
+    smsTemplate.setTemplate(new String[] {TEMPLATE_QID_KEY, TEMPLATE_UAC_KEY});
+
+    UacQidCreatedPayloadDTO newUacQidCreated = new UacQidCreatedPayloadDTO();
+    newUacQidCreated.setUac(TEST_UAC);
+    newUacQidCreated.setQid(TEST_QID);
+
+    EventDTO smsConfirmationEvent = new EventDTO();
+    CompletableFuture<String> confirmationPublished = CompletableFuture.completedFuture("1");
+
+    when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
+        .thenReturn(Optional.of(smsTemplate));
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
+    when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
+        .thenReturn(Optional.of(newUacQidCreated));
+    when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
+    when(smsRequestService.buildSmsConfirmationEvent(
+            any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any()))
+        .thenReturn(smsConfirmationEvent);
+    when(smsRequestService.sendSmsConfirmationAsync(smsConfirmationEvent))
+        .thenReturn(confirmationPublished);
+
+    EventDTO smsRequestEvent = buildEventDTO(smsRequestEnrichedTopic);
+    SmsRequest smsRequest = new SmsRequest();
+    smsRequest.setCaseId(testCase.getId());
+    smsRequest.setPackCode(TEST_PACK_CODE);
+    smsRequest.setPhoneNumber(VALID_PHONE_NUMBER);
+    smsRequestEvent.getPayload().setSmsRequest(smsRequest);
+
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+
+    // When
+    smsRequestReceiver.receiveMessage(eventMessage);
+
+    // Then
+    InOrder inOrder = inOrder(pubSubHelper);
+    inOrder.verify(pubSubHelper).awaitPublished(confirmationPublished);
+    inOrder.verify(pubSubHelper).publishAsync(eq(smsRequestEnrichedTopic), any(EventDTO.class));
+  }
+
+  @Test
+  void testReceiveMessageWithOutboxEnabledAppendsBothEvents() {
+    // Given
+    Case testCase = new Case();
+    testCase.setId(UUID.randomUUID());
+
+    SmsTemplate smsTemplate = new SmsTemplate();
+    smsTemplate.setPackCode("TEST_PACK_CODE");
+    smsTemplate.setTemplate(new String[] {TEMPLATE_QID_KEY, TEMPLATE_UAC_KEY});
+
+    UacQidCreatedPayloadDTO newUacQidCreated = new UacQidCreatedPayloadDTO();
+    newUacQidCreated.setUac(TEST_UAC);
+    newUacQidCreated.setQid(TEST_QID);
+
+    EventDTO smsConfirmationEvent = new EventDTO();
+
+    when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
+        .thenReturn(Optional.of(smsTemplate));
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
+    when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
+        .thenReturn(Optional.of(newUacQidCreated));
+    when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
+    when(smsRequestService.buildSmsConfirmationEvent(
+            any(), any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any()))
+        .thenReturn(smsConfirmationEvent);
+    when(outboxEventStore.isEnabled()).thenReturn(true);
+
+    EventDTO smsRequestEvent = buildEventDTO(smsRequestEnrichedTopic);
+    SmsRequest smsRequest = new SmsRequest();
+    smsRequest.setCaseId(testCase.getId());
+    smsRequest.setPackCode(TEST_PACK_CODE);
+    smsRequest.setPhoneNumber(VALID_PHONE_NUMBER);
+    smsRequestEvent.getPayload().setSmsRequest(smsRequest);
+
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+
+    // When
+    smsRequestReceiver.receiveMessage(eventMessage);
+
+    // Then
+    ArgumentCaptor<EventDTO> enrichedEventCaptor = ArgumentCaptor.forClass(EventDTO.class);
+    verify(outboxEventStore).append(eq(smsConfirmationEvent), enrichedEventCaptor.capture());
+    assertThat(enrichedEventCaptor.getValue().getPayload().getSmsRequestEnriched().getUac())
+        .isEqualTo(TEST_UAC);
+    verifyNoInteractions(pubSubHelper);
+  }
+
   @Test
   void testReceiveMessageHappyPathWithoutUacQid() {
     // Given
@@ -126,7 +228,7 @@ class SmsRequestReceiverTest {
 
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
-    when(caseRepository.existsById(testCase.getId())).thenReturn(true);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(true);
     when(smsRequestService.fetchNewUacQidPairIfRequired(smsTemplate.getTemplate()))
         .thenReturn(Optional.empty());
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
@@ -139,7 +241,7 @@ class SmsRequestReceiverTest {
     smsRequest.setUacMetadata(TEST_UAC_METADATA);
     smsRequestEvent.getPayload().setSmsRequest(smsRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When
     smsRequestReceiver.receiveMessage(eventMessage);
@@ -147,7 +249,7 @@ class SmsRequestReceiverTest {
     // Then
     ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
     verify(pubSubHelper)
-        .publishAndConfirm(eq(smsRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
+        .publishAsync(eq(smsRequestEnrichedTopic), eventDTOArgumentCaptor.capture());
     EventDTO sentEvent = eventDTOArgumentCaptor.getValue();
     assertThat(sentEvent.getHeader().getCorrelationId())
         .isEqualTo(smsRequestEvent.getHeader().getCorrelationId());
@@ -159,7 +261,7 @@ class SmsRequestReceiverTest {
     assertThat(smsRequestEnriched.getQid()).isNull();
 
     verify(smsRequestService)
-        .buildAndSendSmsConfirmation(
+        .buildSmsConfirmationEvent(
             testCase.getId(),
             smsTemplate.getPackCode(),
             smsRequestEvent.getPayload().getSmsRequest().getUacMetadata(),
@@ -193,14 +295,14 @@ class SmsRequestReceiverTest {
     smsRequest.setPhoneNumber(invalidPhoneNumber);
     smsRequestEvent.getPayload().setSmsRequest(smsRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When, then throws
     Exception thrown =
         assertThrows(RuntimeException.class, () -> smsRequestReceiver.receiveMessage(eventMessage));
 
     assertThat(thrown.getMessage()).isEqualTo("Invalid phone number on SMS request message");
-    verifyNoInteractions(caseRepository);
+    verifyNoInteractions(caseDataLookup);
     verifyNoInteractions(smsTemplateRepository);
     verifyNoInteractions(pubSubHelper);
   }
@@ -222,7 +324,7 @@ class SmsRequestReceiverTest {
     when(smsTemplateRepository.findById(smsTemplate.getPackCode()))
         .thenReturn(Optional.of(smsTemplate));
     when(smsRequestService.validatePhoneNumber(VALID_PHONE_NUMBER)).thenReturn(true);
-    when(caseRepository.existsById(testCase.getId())).thenReturn(false);
+    when(caseDataLookup.caseExists(eq(testCase.getId()), any())).thenReturn(false);
 
     EventDTO smsRequestEvent = buildEventDTO(smsRequestEnrichedTopic);
     SmsRequest smsRequest = new SmsRequest();
@@ -231,7 +333,7 @@ class SmsRequestReceiverTest {
     smsRequest.setPhoneNumber(VALID_PHONE_NUMBER);
     smsRequestEvent.getPayload().setSmsRequest(smsRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When, then throws
     Exception thrown =
@@ -265,14 +367,14 @@ class SmsRequestReceiverTest {
     smsRequest.setPhoneNumber(VALID_PHONE_NUMBER);
     smsRequestEvent.getPayload().setSmsRequest(smsRequest);
 
-    Message<byte[]> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
+    Message<ByteString> eventMessage = constructMessageWithValidTimeStamp(smsRequestEvent);
 
     // When, then throws
     Exception thrown =
         assertThrows(RuntimeException.class, () -> smsRequestReceiver.receiveMessage(eventMessage));
 
     assertThat(thrown.getMessage()).isEqualTo("SMS Template not found: " + TEST_PACK_CODE);
-    verifyNoInteractions(caseRepository);
+    verifyNoInteractions(caseDataLookup);
     verifyNoInteractions(pubSubHelper);
   }
 }
@@ -0,0 +1,110 @@
+package uk.gov.ons.ssdc.notifysvc.outbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+  @Mock OutboxEventStore outboxEventStore;
+  @Mock PubSubHelper pubSubHelper;
+  @Mock TransactionTemplate transactionTemplate;
+
+  @InjectMocks OutboxRelay outboxRelay;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(outboxRelay, "relayBatchSize", 2);
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+  }
+
+  @Test
+  void testRelayPublishesThenDeletesUntilOutboxDrained() {
+    // Given
+    OutboxEvent firstEvent = new OutboxEvent(1L, "topic-a", "{\"a\":1}");
+    OutboxEvent secondEvent = new OutboxEvent(2L, "topic-b", "{\"b\":2}");
+    OutboxEvent thirdEvent = new OutboxEvent(3L, "topic-a", "{\"a\":3}");
+    when(outboxEventStore.lockNextEvents(2))
+        .thenReturn(List.of(firstEvent, secondEvent), List.of(thirdEvent));
+    when(pubSubHelper.publishAsync(any(String.class), any(byte[].class)))
+        .thenReturn(CompletableFuture.completedFuture("1"));
+
+    // When
+    outboxRelay.relay();
+
+    // Then
+    InOrder inOrder = inOrder(pubSubHelper, outboxEventStore);
+    inOrder.verify(pubSubHelper).publishAsync("topic-a", "{\"a\":1}".getBytes(UTF_8));
+    inOrder.verify(pubSubHelper).publishAsync("topic-b", "{\"b\":2}".getBytes(UTF_8));
+    inOrder.verify(pubSubHelper, times(2)).awaitPublished(any());
+    inOrder.verify(outboxEventStore).delete(List.of(1L, 2L));
+    inOrder.verify(pubSubHelper).publishAsync("topic-a", "{\"a\":3}".getBytes(UTF_8));
+    inOrder.verify(pubSubHelper).awaitPublished(any());
+    inOrder.verify(outboxEventStore).delete(List.of(3L));
+  }
+
+  @Test
+  void testRelayDeletesOnlyPublishedEventsWhenSomePublishesFail() {
+    // Given
+    OutboxEvent firstEvent = new OutboxEvent(1L, "topic-a", "{\"a\":1}");
+    OutboxEvent secondEvent = new OutboxEvent(2L, "topic-b", "{\"b\":2}");
+    CompletableFuture<String> failedPublish = new CompletableFuture<>();
+    CompletableFuture<String> succeededPublish = CompletableFuture.completedFuture("2");
+    when(outboxEventStore.lockNextEvents(2)).thenReturn(List.of(firstEvent, secondEvent));
+    when(pubSubHelper.publishAsync("topic-a", "{\"a\":1}".getBytes(UTF_8)))
+        .thenReturn(failedPublish);
+    when(pubSubHelper.publishAsync("topic-b", "{\"b\":2}".getBytes(UTF_8)))
+        .thenReturn(succeededPublish);
+    doThrow(new RuntimeException("Error publishing message to PubSub topic "))
+        .when(pubSubHelper)
+        .awaitPublished(failedPublish);
+
+    // When
+    outboxRelay.relay();
+
+    // Then
+    verify(outboxEventStore).delete(List.of(2L));
+    verify(outboxEventStore, times(1)).lockNextEvents(2);
+  }
+
+  @Test
+  void testRelayLeavesEventsInOutboxWhenPublishFails() {
+    // Given
+    OutboxEvent event = new OutboxEvent(1L, "topic-a", "{\"a\":1}");
+    when(outboxEventStore.lockNextEvents(2)).thenReturn(List.of(event));
+    when(pubSubHelper.publishAsync(any(String.class), any(byte[].class)))
+        .thenReturn(CompletableFuture.completedFuture("1"));
+    doThrow(new RuntimeException("Error publishing message to PubSub topic "))
+        .when(pubSubHelper)
+        .awaitPublished(any());
+
+    // When
+    outboxRelay.relay();
+
+    // Then
+    verify(outboxEventStore, never()).delete(any());
+  }
+}
@@ -0,0 +1,84 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AimdRateControllerTest {
+  private final AtomicLong nanoClock = new AtomicLong();
+
+  private AimdRateController buildRateController(double permitsPerSecond) {
+    return new AimdRateController(
+        new TokenBucket(permitsPerSecond, 1, nanoClock::get),
+        1,
+        10,
+        0.5,
+        Duration.ofSeconds(1),
+        nanoClock::get);
+  }
+
+  @Test
+  void testRateLimitedHalvesRate() {
+    // Given
+    AimdRateController rateController = buildRateController(40);
+
+    // When
+    rateController.onRateLimited();
+
+    // Then
+    assertThat(rateController.getPermitsPerSecond()).isEqualTo(20);
+  }
+
+  @Test
+  void testRateLimitedWithinBackoffIntervalOnlyBacksOffOnce() {
+    // Given
+    AimdRateController rateController = buildRateController(40);
+
+    // When
+    rateController.onRateLimited();
+    rateController.onRateLimited();
+    nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+    rateController.onRateLimited();
+
+    // Then
+    assertThat(rateController.getPermitsPerSecond()).isEqualTo(10);
+  }
+
+  @Test
+  void testRateNeverDropsBelowMinimum() {
+    // Given
+    AimdRateController rateController = buildRateController(2);
+
+    // When
+    for (int i = 0; i < 5; i++) {
+      rateController.onRateLimited();
+      nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+    }
+
+    // Then
+    assertThat(rateController.getPermitsPerSecond()).isEqualTo(1);
+  }
+
+  @Test
+  void testSuccessIncreasesRateUpToConfiguredMaximum() {
+    // Given
+    AimdRateController rateController = buildRateController(40);
+    rateController.onRateLimited();
+
+    // When
+    rateController.onSuccess();
+
+    // Then
+    assertThat(rateController.getPermitsPerSecond()).isEqualTo(20.5);
+
+    // When
+    for (int i = 0; i < 1000; i++) {
+      rateController.onSuccess();
+    }
+
+    // Then
+    assertThat(rateController.getPermitsPerSecond()).isEqualTo(40);
+  }
+}
@@ -0,0 +1,89 @@
+package uk.gov.ons.ssdc.notifysvc.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+  private final AtomicLong nanoClock = new AtomicLong();
+
+  @Test
+  void testBurstIsAvailableWithoutWaiting() {
+    // Given
+    TokenBucket tokenBucket = new TokenBucket(10, 3, nanoClock::get);
+
+    // When, then
+    assertThat(tokenBucket.reserve()).isZero();
+    assertThat(tokenBucket.reserve()).isZero();
+    assertThat(tokenBucket.reserve()).isZero();
+  }
+
+  @Test
+  void testWaitsQueueBehindEachOtherOnceBurstIsUsed() {
+    // Given
+    TokenBucket tokenBucket = new TokenBucket(10, 1, nanoClock::get);
+    tokenBucket.reserve();
+
+    // When
+    long firstWait = tokenBucket.reserve();
+    long secondWait = tokenBucket.reserve();
+
+    // Then
+    assertThat(firstWait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(secondWait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  void testPermitsRefillOverTimeUpToBurst() {
+    // Given
+    TokenBucket tokenBucket = new TokenBucket(10, 2, nanoClock::get);
+    tokenBucket.reserve();
+    tokenBucket.reserve();
+
+    // When
+    nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    // Then
+    assertThat(tokenBucket.reserve()).isZero();
+    assertThat(tokenBucket.reserve()).isZero();
+    assertThat(tokenBucket.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  void testChangingRateAppliesToNewReservations() {
+    // Given
+    TokenBucket tokenBucket = new TokenBucket(10, 1, nanoClock::get);
+    tokenBucket.reserve();
+
+    // When
+    tokenBucket.setPermitsPerSecond(20);
+
+    // Then
+    assertThat(tokenBucket.getPermitsPerSecond()).isEqualTo(20);
+    assertThat(tokenBucket.reserve()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  void testTryReserveDoesNotTakePermitBeyondMaxWait() {
+    // Given
+    TokenBucket tokenBucket = new TokenBucket(10, 1, nanoClock::get);
+    tokenBucket.reserve();
+
+    // When
+    long tooLongWait = tokenBucket.tryReserve(TimeUnit.MILLISECONDS.toNanos(50));
+    long allowedWait = tokenBucket.tryReserve(TimeUnit.MILLISECONDS.toNanos(100));
+
+    // Then
+    assertThat(tooLongWait).isEqualTo(-1);
+    assertThat(allowedWait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  void testInvalidLimitIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, nanoClock::get));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0, nanoClock::get));
+  }
+}
@@ -0,0 +1,330 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CasePersonalisationFields;
+import uk.gov.ons.ssdc.notifysvc.model.repository.CaseRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentCaseFields;
+import uk.gov.ons.ssdc.notifysvc.model.repository.KeyedCasePersonalisationFields;
+import uk.gov.ons.ssdc.notifysvc.utils.PersonalisationPlan;
+
+@ExtendWith(MockitoExtension.class)
+class CaseDataLookupTest {
+
+  @Mock CaseRepository caseRepository;
+  @Mock PlatformTransactionManager transactionManager;
+
+  private final CaseBatchingProperties caseBatchingProperties = new CaseBatchingProperties();
+  private final CaseCacheProperties caseCacheProperties = new CaseCacheProperties();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final PersonalisationPlan plan = PersonalisationPlan.forTemplate(new String[] {"name"});
+
+  @BeforeEach
+  void setUp() {
+    caseBatchingProperties.setEnabled(true);
+    caseBatchingProperties.setMaxBatchSize(2);
+    caseBatchingProperties.setMaxWait(Duration.ofSeconds(10));
+    caseCacheProperties.setMaximumSize(100);
+    caseCacheProperties.setExpireAfterWrite(Duration.ofMinutes(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  void testDisabledLookupsGoStraightToRepository() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    UUID caseId = UUID.randomUUID();
+    when(caseRepository.existsById(caseId)).thenReturn(true);
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    boolean exists = underTest.caseExists(caseId, plan);
+
+    // Then
+    assertThat(exists).isTrue();
+    verify(caseRepository, never()).findExistingIds(any());
+  }
+
+  @Test
+  void testConcurrentExistenceChecksShareOneQuery() {
+    // Given
+    UUID existingCaseId = UUID.randomUUID();
+    UUID missingCaseId = UUID.randomUUID();
+    when(caseRepository.findExistingIds(any())).thenReturn(List.of(existingCaseId));
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    CompletableFuture<Boolean> existing =
+        CompletableFuture.supplyAsync(() -> underTest.caseExists(existingCaseId, plan));
+    CompletableFuture<Boolean> missing =
+        CompletableFuture.supplyAsync(() -> underTest.caseExists(missingCaseId, plan));
+
+    // Then
+    assertThat(existing.join()).isTrue();
+    assertThat(missing.join()).isFalse();
+    ArgumentCaptor<Collection<UUID>> queriedIds = ArgumentCaptor.forClass(Collection.class);
+    verify(caseRepository).findExistingIds(queriedIds.capture());
+    assertThat(queriedIds.getValue()).containsExactlyInAnyOrder(existingCaseId, missingCaseId);
+    assertThat(meterRegistry.get("case.lookup.batch.size").summary().max()).isEqualTo(2);
+  }
+
+  @Test
+  void testConcurrentPersonalisationLookupsMatchedToTheirCases() {
+    // Given
+    UUID firstCaseId = UUID.randomUUID();
+    UUID secondCaseId = UUID.randomUUID();
+    when(caseRepository.findPersonalisationFieldsByIds(
+            any(), any(String[].class), any(String[].class)))
+        .thenReturn(List.of(caseFields(secondCaseId, "Second"), caseFields(firstCaseId, "First")));
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    CompletableFuture<Optional<CasePersonalisationFields>> first =
+        CompletableFuture.supplyAsync(() -> underTest.findPersonalisationFields(firstCaseId, plan));
+    CompletableFuture<Optional<CasePersonalisationFields>> second =
+        CompletableFuture.supplyAsync(
+            () -> underTest.findPersonalisationFields(secondCaseId, plan));
+
+    // Then
+    assertThat(first.join()).get().extracting(fields -> fields.getSample()[0]).isEqualTo("First");
+    assertThat(second.join()).get().extracting(fields -> fields.getSample()[0]).isEqualTo("Second");
+    verify(caseRepository)
+        .findPersonalisationFieldsByIds(any(), any(String[].class), any(String[].class));
+  }
+
+  @Test
+  void testFieldsReadByRequestStageAreReusedByEnrichedStage() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    caseCacheProperties.setEnabled(true);
+    UUID caseId = UUID.randomUUID();
+    when(caseRepository.findPersonalisationFields(
+            eq(caseId), any(String[].class), any(String[].class)))
+        .thenReturn(Optional.of(caseFields(caseId, "Jo")));
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    boolean exists = underTest.caseExists(caseId, plan);
+    Optional<CasePersonalisationFields> cachedFields =
+        underTest.findPersonalisationFields(caseId, plan);
+
+    // Then
+    assertThat(exists).isTrue();
+    assertThat(cachedFields).get().extracting(fields -> fields.getSample()[0]).isEqualTo("Jo");
+    assertThat(cachedFields.get().toString()).doesNotContain("Jo");
+    verify(caseRepository, times(1))
+        .findPersonalisationFields(eq(caseId), any(String[].class), any(String[].class));
+    verify(caseRepository, never()).existsById(any());
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testFieldsCachedForTemplateAreReusedByTemplateReadingSameKeys() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    caseCacheProperties.setEnabled(true);
+    UUID caseId = UUID.randomUUID();
+    PersonalisationPlan otherPlan =
+        PersonalisationPlan.forTemplate(new String[] {"name", TEMPLATE_REQUEST_PREFIX + "ref"});
+    when(caseRepository.findPersonalisationFields(
+            eq(caseId), any(String[].class), any(String[].class)))
+        .thenReturn(Optional.of(caseFields(caseId, "Jo")));
+    CaseDataLookup underTest = buildLookup();
+    underTest.findPersonalisationFields(caseId, plan);
+
+    // When
+    Optional<CasePersonalisationFields> cachedFields =
+        underTest.findPersonalisationFields(caseId, otherPlan);
+
+    // Then
+    assertThat(otherPlan).isNotSameAs(plan);
+    assertThat(cachedFields).get().extracting(fields -> fields.getSample()[0]).isEqualTo("Jo");
+    verify(caseRepository, times(1))
+        .findPersonalisationFields(eq(caseId), any(String[].class), any(String[].class));
+  }
+
+  @Test
+  void testMissingCaseIsNotCached() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    caseCacheProperties.setEnabled(true);
+    UUID caseId = UUID.randomUUID();
+    when(caseRepository.findPersonalisationFields(
+            eq(caseId), any(String[].class), any(String[].class)))
+        .thenReturn(Optional.empty(), Optional.of(caseFields(caseId, "Jo")));
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    boolean existsFirst = underTest.caseExists(caseId, plan);
+    boolean existsSecond = underTest.caseExists(caseId, plan);
+
+    // Then
+    assertThat(existsFirst).isFalse();
+    assertThat(existsSecond).isTrue();
+    verify(caseRepository, times(2))
+        .findPersonalisationFields(eq(caseId), any(String[].class), any(String[].class));
+  }
+
+  @Test
+  void testFulfilmentCaseCachedWithSurvey() {
+    // Given
+    caseCacheProperties.setEnabled(true);
+    UUID caseId = UUID.randomUUID();
+    UUID surveyId = UUID.randomUUID();
+    when(caseRepository.findFulfilmentCase(eq(caseId), any(String[].class), any(String[].class)))
+        .thenReturn(Optional.of(fulfilmentCaseFields(surveyId, "Jo")));
+    CaseDataLookup underTest = buildLookup();
+
+    // When
+    underTest.findFulfilmentCase(caseId, plan);
+    Optional<FulfilmentCaseFields> cachedFields = underTest.findFulfilmentCase(caseId, plan);
+
+    // Then
+    assertThat(cachedFields)
+        .get()
+        .extracting(FulfilmentCaseFields::getSurveyId)
+        .isEqualTo(surveyId);
+    assertThat(cachedFields.get().getSample()).containsExactly("Jo");
+    verify(caseRepository, times(1))
+        .findFulfilmentCase(eq(caseId), any(String[].class), any(String[].class));
+  }
+
+  @Test
+  void testFulfilmentCaseMissingOnReplicaIsLookedForOnPrimary() {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    UUID surveyId = UUID.randomUUID();
+    when(caseRepository.findFulfilmentCase(eq(caseId), any(String[].class), any(String[].class)))
+        .thenReturn(Optional.empty(), Optional.of(fulfilmentCaseFields(surveyId, "Jo")));
+    CaseDataLookup underTest = buildLookup(new TransactionTemplate(transactionManager));
+
+    // When
+    Optional<FulfilmentCaseFields> caseFields = underTest.findFulfilmentCase(caseId, plan);
+
+    // Then
+    assertThat(caseFields).get().extracting(FulfilmentCaseFields::getSurveyId).isEqualTo(surveyId);
+    ArgumentCaptor<TransactionDefinition> transaction =
+        ArgumentCaptor.forClass(TransactionDefinition.class);
+    verify(transactionManager).getTransaction(transaction.capture());
+    assertThat(transaction.getValue().isReadOnly()).isFalse();
+  }
+
+  @Test
+  void testCaseMissingOnReplicaIsLookedForOnPrimary() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    UUID caseId = UUID.randomUUID();
+    when(caseRepository.existsById(caseId)).thenReturn(false, true);
+    CaseDataLookup underTest = buildLookup(new TransactionTemplate(transactionManager));
+
+    // When
+    boolean exists = underTest.caseExists(caseId, plan);
+
+    // Then
+    assertThat(exists).isTrue();
+    verify(caseRepository, times(2)).existsById(caseId);
+    verify(transactionManager).getTransaction(any());
+  }
+
+  @Test
+  void testFoundCaseIsNotLookedForAgainOnPrimary() {
+    // Given
+    caseBatchingProperties.setEnabled(false);
+    UUID caseId = UUID.randomUUID();
+    when(caseRepository.existsById(caseId)).thenReturn(true);
+    CaseDataLookup underTest = buildLookup(new TransactionTemplate(transactionManager));
+
+    // When
+    boolean exists = underTest.caseExists(caseId, plan);
+
+    // Then
+    assertThat(exists).isTrue();
+    verify(caseRepository, times(1)).existsById(caseId);
+    verifyNoInteractions(transactionManager);
+  }
+
+  private CaseDataLookup buildLookup() {
+    return buildLookup(null);
+  }
+
+  private CaseDataLookup buildLookup(TransactionTemplate primaryReads) {
+    return new CaseDataLookup(
+        caseRepository,
+        caseBatchingProperties,
+        caseCacheProperties,
+        meterRegistry,
+        primaryReads,
+        scheduler);
+  }
+
+  private KeyedCasePersonalisationFields caseFields(UUID caseId, String name) {
+    return new KeyedCasePersonalisationFields() {
+      @Override
+      public UUID getCaseId() {
+        return caseId;
+      }
+
+      @Override
+      public String[] getSample() {
+        return new String[] {name};
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return new String[0];
+      }
+    };
+  }
+
+  private FulfilmentCaseFields fulfilmentCaseFields(UUID surveyId, String name) {
+    return new FulfilmentCaseFields() {
+      @Override
+      public UUID getSurveyId() {
+        return surveyId;
+      }
+
+      @Override
+      public String[] getSample() {
+        return new String[] {name};
+      }
+
+      @Override
+      public String[] getSampleSensitive() {
+        return new String[0];
+      }
+    };
+  }
+}
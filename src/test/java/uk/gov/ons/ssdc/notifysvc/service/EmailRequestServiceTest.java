@@ -24,20 +24,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import uk.gov.ons.ssdc.common.model.entity.EmailTemplate;
 import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.client.UacQidServiceClient;
+import uk.gov.ons.ssdc.notifysvc.client.UacQidPairPool;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailConfirmation;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
-import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveyEmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
 @ExtendWith(MockitoExtension.class)
 class EmailRequestServiceTest {
 
-  @Mock private FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository;
-  @Mock private UacQidServiceClient uacQidServiceClient;
+  @Mock private FulfilmentAllowList fulfilmentAllowList;
+  @Mock private UacQidPairPool uacQidPairPool;
   @Mock private PubSubHelper pubSubHelper;
+  @Mock private OutboxEventStore outboxEventStore;
 
   @InjectMocks private EmailRequestService emailRequestService;
 
@@ -87,7 +88,7 @@ class EmailRequestServiceTest {
 
     // Then
     assertThat(actualUacQidCreated).isEmpty();
-    verifyNoInteractions(uacQidServiceClient);
+    verifyNoInteractions(uacQidPairPool);
   }
 
   @Test
@@ -96,7 +97,7 @@ class EmailRequestServiceTest {
     UacQidCreatedPayloadDTO newUacQidCreated = new UacQidCreatedPayloadDTO();
     newUacQidCreated.setUac("TEST_UAC");
     newUacQidCreated.setUac("TEST_QID");
-    when(uacQidServiceClient.generateUacQid()).thenReturn(newUacQidCreated);
+    when(uacQidPairPool.getUacQidPair()).thenReturn(newUacQidCreated);
 
     // When
     Optional<UacQidCreatedPayloadDTO> actualUacQidCreated =
@@ -114,11 +115,11 @@ class EmailRequestServiceTest {
     survey.setId(UUID.randomUUID());
     EmailTemplate emailTemplate = new EmailTemplate();
     emailTemplate.setPackCode(TEST_PACK_CODE);
-    when(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey))
+    when(fulfilmentAllowList.isEmailTemplateAllowedOnSurvey(survey.getId(), TEST_PACK_CODE))
         .thenReturn(true);
 
     // When, then
-    assertTrue(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey));
+    assertTrue(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey.getId()));
   }
 
   @Test
@@ -128,11 +129,11 @@ class EmailRequestServiceTest {
     survey.setId(UUID.randomUUID());
     EmailTemplate emailTemplate = new EmailTemplate();
     emailTemplate.setPackCode(TEST_PACK_CODE);
-    when(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey))
+    when(fulfilmentAllowList.isEmailTemplateAllowedOnSurvey(survey.getId(), TEST_PACK_CODE))
         .thenReturn(false);
 
     // When, then
-    assertFalse(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey));
+    assertFalse(emailRequestService.isEmailTemplateAllowedOnSurvey(emailTemplate, survey.getId()));
   }
 
   @Test
@@ -236,4 +237,35 @@ class EmailRequestServiceTest {
     assertThat(emailConfirmation.getUacMetadata()).isEqualTo(TEST_UAC_METADATA);
     assertThat(emailConfirmation.getPersonalisation()).isNullOrEmpty();
   }
+
+  @Test
+  void testBuildAndSendEmailConfirmationAppendsToOutboxWhenEnabled() {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    UacQidCreatedPayloadDTO uacQidPair = new UacQidCreatedPayloadDTO();
+    uacQidPair.setUac(TEST_UAC);
+    uacQidPair.setQid(TEST_QID);
+    when(outboxEventStore.isEnabled()).thenReturn(true);
+
+    ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
+
+    // When
+    emailRequestService.buildAndSendEmailConfirmation(
+        caseId,
+        TEST_PACK_CODE,
+        TEST_UAC_METADATA,
+        TEST_PERSONALSATION,
+        Optional.of(uacQidPair),
+        false,
+        TEST_SOURCE,
+        TEST_CHANNEL,
+        UUID.randomUUID(),
+        TEST_USER);
+
+    // Then
+    verify(outboxEventStore).append(eventDTOArgumentCaptor.capture());
+    assertThat(eventDTOArgumentCaptor.getValue().getPayload().getEmailConfirmation().getCaseId())
+        .isEqualTo(caseId);
+    verifyNoInteractions(pubSubHelper);
+  }
 }
@@ -0,0 +1,133 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveyEmailTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveySmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.model.repository.SurveyPackCode;
+
+@ExtendWith(MockitoExtension.class)
+class FulfilmentAllowListTest {
+  private static final String TEST_PACK_CODE = "TEST_PACK_CODE";
+
+  @Mock private FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository;
+  @Mock private FulfilmentSurveyEmailTemplateRepository fulfilmentSurveyEmailTemplateRepository;
+
+  @InjectMocks private FulfilmentAllowList underTest;
+
+  @Test
+  void testAllowedTemplateAnsweredFromIndex() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+    when(fulfilmentSurveySmsTemplateRepository.findAllSurveyPackCodes())
+        .thenReturn(List.of(surveyPackCode(surveyId, TEST_PACK_CODE)));
+    when(fulfilmentSurveyEmailTemplateRepository.findAllSurveyPackCodes())
+        .thenReturn(List.of(surveyPackCode(surveyId, TEST_PACK_CODE)));
+    underTest.refresh();
+
+    // When
+    boolean smsAllowed = underTest.isSmsTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE);
+    boolean emailAllowed = underTest.isEmailTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE);
+
+    // Then
+    assertThat(smsAllowed).isTrue();
+    assertThat(emailAllowed).isTrue();
+    verify(fulfilmentSurveySmsTemplateRepository, never())
+        .existsBySurveyIdAndSmsTemplatePackCode(any(), any());
+    verify(fulfilmentSurveyEmailTemplateRepository, never())
+        .existsBySurveyIdAndEmailTemplatePackCode(any(), any());
+  }
+
+  @Test
+  void testTemplateAllowedSinceRefreshFoundInDatabase() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+    when(fulfilmentSurveySmsTemplateRepository.existsBySurveyIdAndSmsTemplatePackCode(
+            surveyId, TEST_PACK_CODE))
+        .thenReturn(true);
+
+    // When
+    boolean firstAllowed = underTest.isSmsTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE);
+    boolean secondAllowed = underTest.isSmsTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE);
+
+    // Then
+    assertThat(firstAllowed).isTrue();
+    assertThat(secondAllowed).isTrue();
+    verify(fulfilmentSurveySmsTemplateRepository, times(1))
+        .existsBySurveyIdAndSmsTemplatePackCode(surveyId, TEST_PACK_CODE);
+  }
+
+  @Test
+  void testTemplateNotAllowed() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+    when(fulfilmentSurveyEmailTemplateRepository.existsBySurveyIdAndEmailTemplatePackCode(
+            surveyId, TEST_PACK_CODE))
+        .thenReturn(false);
+
+    // When, then
+    assertThat(underTest.isEmailTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE)).isFalse();
+  }
+
+  @Test
+  void testFailedRefreshKeepsPreviousIndex() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+    when(fulfilmentSurveySmsTemplateRepository.findAllSurveyPackCodes())
+        .thenReturn(List.of(surveyPackCode(surveyId, TEST_PACK_CODE)))
+        .thenThrow(new RuntimeException("Database unavailable"));
+    underTest.refresh();
+
+    // When
+    underTest.refresh();
+
+    // Then
+    assertThat(underTest.isSmsTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE)).isTrue();
+    verify(fulfilmentSurveySmsTemplateRepository, never())
+        .existsBySurveyIdAndSmsTemplatePackCode(any(), any());
+  }
+
+  @Test
+  void testEvictedTemplateCheckedAgainstDatabase() {
+    // Given
+    UUID surveyId = UUID.randomUUID();
+    when(fulfilmentSurveySmsTemplateRepository.findAllSurveyPackCodes())
+        .thenReturn(List.of(surveyPackCode(surveyId, TEST_PACK_CODE)));
+    underTest.refresh();
+    when(fulfilmentSurveySmsTemplateRepository.existsBySurveyIdAndSmsTemplatePackCode(
+            surveyId, TEST_PACK_CODE))
+        .thenReturn(false);
+
+    // When
+    underTest.evictSmsTemplate(surveyId, TEST_PACK_CODE);
+
+    // Then
+    assertThat(underTest.isSmsTemplateAllowedOnSurvey(surveyId, TEST_PACK_CODE)).isFalse();
+  }
+
+  private SurveyPackCode surveyPackCode(UUID surveyId, String packCode) {
+    return new SurveyPackCode() {
+      @Override
+      public UUID getSurveyId() {
+        return surveyId;
+      }
+
+      @Override
+      public String getPackCode() {
+        return packCode;
+      }
+    };
+  }
+}
@@ -0,0 +1,165 @@
+package uk.gov.ons.ssdc.notifysvc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MicroBatcherTest {
+
+  @Mock ScheduledExecutorService scheduler;
+  @Mock ScheduledFuture<?> scheduledFlush;
+
+  private final List<Set<String>> loadedBatches = new ArrayList<>();
+  private final List<Integer> recordedBatchSizes = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    lenient()
+        .doReturn(scheduledFlush)
+        .when(scheduler)
+        .schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  void testFullBatchLoadedImmediately() throws Exception {
+    // Given
+    MicroBatcher<String, String> underTest = buildBatcher(2, this::loadUpperCase);
+
+    // When
+    CompletableFuture<String> first = underTest.load("a");
+    CompletableFuture<String> second = underTest.load("b");
+
+    // Then
+    assertThat(first.get()).isEqualTo("A");
+    assertThat(second.get()).isEqualTo("B");
+    assertThat(loadedBatches).containsExactly(Set.of("a", "b"));
+    assertThat(recordedBatchSizes).containsExactly(2);
+  }
+
+  @Test
+  void testPartialBatchLoadedAfterMaxWait() throws Exception {
+    // Given
+    MicroBatcher<String, String> underTest = buildBatcher(10, this::loadUpperCase);
+
+    // When
+    CompletableFuture<String> first = underTest.load("a");
+    CompletableFuture<String> sameKey = underTest.load("a");
+    assertThat(first).isNotDone();
+    runScheduledFlush();
+
+    // Then
+    assertThat(sameKey).isSameAs(first);
+    assertThat(first.get()).isEqualTo("A");
+    assertThat(loadedBatches).containsExactly(Set.of("a"));
+  }
+
+  @Test
+  void testScheduledFlushIgnoredForBatchAlreadyLoaded() {
+    // Given
+    MicroBatcher<String, String> underTest = buildBatcher(1, this::loadUpperCase);
+    CompletableFuture<String> result = underTest.load("a");
+
+    // When
+    runScheduledFlush();
+
+    // Then
+    assertThat(result).isCompletedWithValue("A");
+    assertThat(loadedBatches).containsExactly(Set.of("a"));
+    verify(scheduledFlush).cancel(false);
+  }
+
+  @Test
+  void testLoadFailsWhenSchedulerHasShutDown() {
+    // Given
+    MicroBatcher<String, String> underTest = buildBatcher(10, this::loadUpperCase);
+    doThrow(new RejectedExecutionException("Shut down"))
+        .when(scheduler)
+        .schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+
+    // When
+    CompletableFuture<String> result = underTest.load("a");
+
+    // Then
+    ExecutionException thrown = assertThrows(ExecutionException.class, result::get);
+    assertThat(thrown.getCause()).isInstanceOf(RejectedExecutionException.class);
+    assertThat(loadedBatches).isEmpty();
+  }
+
+  @Test
+  void testKeysNotLoadedCompleteWithNull() throws Exception {
+    // Given
+    MicroBatcher<String, String> underTest = buildBatcher(1, keys -> Map.of());
+
+    // When
+    CompletableFuture<String> result = underTest.load("a");
+
+    // Then
+    assertThat(result.get()).isNull();
+  }
+
+  @Test
+  void testLoadFailureFailsEveryKeyInBatch() {
+    // Given
+    MicroBatcher<String, String> underTest =
+        buildBatcher(
+            2,
+            keys -> {
+              throw new RuntimeException("Database unavailable");
+            });
+
+    // When
+    CompletableFuture<String> first = underTest.load("a");
+    CompletableFuture<String> second = underTest.load("b");
+
+    // Then
+    ExecutionException thrown = assertThrows(ExecutionException.class, first::get);
+    assertThat(thrown.getCause()).hasMessage("Database unavailable");
+    assertThat(second).isCompletedExceptionally();
+  }
+
+  private MicroBatcher<String, String> buildBatcher(
+      int maxBatchSize, Function<Set<String>, Map<String, String>> batchLoader) {
+    return new MicroBatcher<>(
+        maxBatchSize, Duration.ofMillis(5), batchLoader, scheduler, recordedBatchSizes::add);
+  }
+
+  private Map<String, String> loadUpperCase(Set<String> keys) {
+    loadedBatches.add(Set.copyOf(keys));
+    Map<String, String> values = new HashMap<>();
+    keys.forEach(key -> values.put(key, key.toUpperCase(Locale.ROOT)));
+    return values;
+  }
+
+  private void runScheduledFlush() {
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(flush.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+    flush.getValue().run();
+  }
+}
@@ -24,20 +24,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import uk.gov.ons.ssdc.common.model.entity.SmsTemplate;
 import uk.gov.ons.ssdc.common.model.entity.Survey;
-import uk.gov.ons.ssdc.notifysvc.client.UacQidServiceClient;
+import uk.gov.ons.ssdc.notifysvc.client.UacQidPairPool;
 import uk.gov.ons.ssdc.notifysvc.model.dto.api.UacQidCreatedPayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
 import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsConfirmation;
-import uk.gov.ons.ssdc.notifysvc.model.repository.FulfilmentSurveySmsTemplateRepository;
+import uk.gov.ons.ssdc.notifysvc.outbox.OutboxEventStore;
 import uk.gov.ons.ssdc.notifysvc.utils.PubSubHelper;
 
 @ExtendWith(MockitoExtension.class)
 class SmsRequestServiceTest {
 
-  @Mock private FulfilmentSurveySmsTemplateRepository fulfilmentSurveySmsTemplateRepository;
-  @Mock private UacQidServiceClient uacQidServiceClient;
+  @Mock private FulfilmentAllowList fulfilmentAllowList;
+  @Mock private UacQidPairPool uacQidPairPool;
   @Mock private PubSubHelper pubSubHelper;
+  @Mock private OutboxEventStore outboxEventStore;
 
   @InjectMocks private SmsRequestService smsRequestService;
 
@@ -95,7 +96,7 @@ class SmsRequestServiceTest {
 
     // Then
     assertThat(actualUacQidCreated).isEmpty();
-    verifyNoInteractions(uacQidServiceClient);
+    verifyNoInteractions(uacQidPairPool);
   }
 
   @Test
@@ -104,7 +105,7 @@ class SmsRequestServiceTest {
     UacQidCreatedPayloadDTO newUacQidCreated = new UacQidCreatedPayloadDTO();
     newUacQidCreated.setUac("TEST_UAC");
     newUacQidCreated.setUac("TEST_QID");
-    when(uacQidServiceClient.generateUacQid()).thenReturn(newUacQidCreated);
+    when(uacQidPairPool.getUacQidPair()).thenReturn(newUacQidCreated);
 
     // When
     Optional<UacQidCreatedPayloadDTO> actualUacQidCreated =
@@ -122,10 +123,11 @@ class SmsRequestServiceTest {
     survey.setId(UUID.randomUUID());
     SmsTemplate smsTemplate = new SmsTemplate();
     smsTemplate.setPackCode(TEST_PACK_CODE);
-    when(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey)).thenReturn(true);
+    when(fulfilmentAllowList.isSmsTemplateAllowedOnSurvey(survey.getId(), TEST_PACK_CODE))
+        .thenReturn(true);
 
     // When, then
-    assertTrue(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey));
+    assertTrue(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey.getId()));
   }
 
   @Test
@@ -135,10 +137,11 @@ class SmsRequestServiceTest {
     survey.setId(UUID.randomUUID());
     SmsTemplate smsTemplate = new SmsTemplate();
     smsTemplate.setPackCode(TEST_PACK_CODE);
-    when(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey)).thenReturn(false);
+    when(fulfilmentAllowList.isSmsTemplateAllowedOnSurvey(survey.getId(), TEST_PACK_CODE))
+        .thenReturn(false);
 
     // When, then
-    assertFalse(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey));
+    assertFalse(smsRequestService.isSmsTemplateAllowedOnSurvey(smsTemplate, survey.getId()));
   }
 
   @Test
@@ -189,4 +192,33 @@ class SmsRequestServiceTest {
     assertThat(smsConfirmation.getQid()).isEqualTo(uacQidPair.getQid());
     assertThat(smsConfirmation.getUacMetadata()).isEqualTo(TEST_UAC_METADATA);
   }
+
+  @Test
+  void testBuildAndSendSmsConfirmationWithOutboxEnabled() {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    when(outboxEventStore.isEnabled()).thenReturn(true);
+
+    // When
+    smsRequestService.buildAndSendSmsConfirmation(
+        caseId,
+        TEST_PACK_CODE,
+        TEST_UAC_METADATA,
+        TEST_PERSONALISATION,
+        Optional.empty(),
+        false,
+        TEST_SOURCE,
+        TEST_CHANNEL,
+        UUID.randomUUID(),
+        TEST_USER);
+
+    // Then
+    ArgumentCaptor<EventDTO> eventDTOArgumentCaptor = ArgumentCaptor.forClass(EventDTO.class);
+    verify(outboxEventStore).append(eventDTOArgumentCaptor.capture());
+    EventDTO smsConfirmationEvent = eventDTOArgumentCaptor.getValue();
+    assertThat(smsConfirmationEvent.getHeader().getTopic()).isEqualTo(smsFulfilmentTopic);
+    assertThat(smsConfirmationEvent.getPayload().getSmsConfirmation().getCaseId())
+        .isEqualTo(caseId);
+    verifyNoInteractions(pubSubHelper);
+  }
 }
@@ -3,6 +3,7 @@ package uk.gov.ons.ssdc.notifysvc.testUtils;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.protobuf.ByteString;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import org.springframework.messaging.Message;
@@ -12,8 +13,8 @@ import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
 import uk.gov.ons.ssdc.notifysvc.utils.Constants;
 
 public class MessageConstructor {
-  public static Message<byte[]> constructMessageWithValidTimeStamp(Object payload) {
-    byte[] payloadBytes = JsonTestHelper.convertObjectToJson(payload).getBytes();
+  public static Message<ByteString> constructMessageWithValidTimeStamp(Object payload) {
+    ByteString payloadBytes = ByteString.copyFromUtf8(JsonTestHelper.convertObjectToJson(payload));
     return constructMessageInternal(payloadBytes);
   }
 
@@ -2,6 +2,15 @@ package uk.gov.ons.ssdc.notifysvc.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 class HashHelperTest {
@@ -23,4 +32,42 @@ class HashHelperTest {
     assertEquals(
         "0199aeca2fb522ba11eb84bd9331949186555960a28c6fe463347261dc76fef9", hashStringResult);
   }
+
+  @Test
+  void testByteStringToHash() {
+    // Large enough that concatenating doesn't flatten it, so the data is spread over two buffers
+    String testString = "This is a test for ByteString to Hash! I hope this works!!! ".repeat(4);
+    ByteString testByteString =
+        ByteString.copyFromUtf8(testString).concat(ByteString.copyFromUtf8(testString));
+
+    String hashStringResult = HashHelper.hash(testByteString);
+    assertEquals(HashHelper.hash(testString + testString), hashStringResult);
+  }
+
+  @Test
+  void testByteBufferToHash() {
+    String testString = "This is a test for Bytes to Hash! I hope this works!!!";
+    ByteBuffer testBuffer = ByteBuffer.wrap(testString.getBytes(StandardCharsets.UTF_8));
+
+    String hashStringResult = HashHelper.hash(testBuffer);
+    assertEquals(
+        "0199aeca2fb522ba11eb84bd9331949186555960a28c6fe463347261dc76fef9", hashStringResult);
+    assertEquals(0, testBuffer.position());
+  }
+
+  @Test
+  void testHashingFromManyThreads() throws Exception {
+    String testString = "This is a test for Bytes to Hash! I hope this works!!!";
+    Callable<String> hashTask = () -> HashHelper.hash(testString);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = executor.invokeAll(Collections.nCopies(1000, hashTask));
+      for (Future<String> result : results) {
+        assertEquals(
+            "0199aeca2fb522ba11eb84bd9331949186555960a28c6fe463347261dc76fef9", result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,117 @@
+package uk.gov.ons.ssdc.notifysvc.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.ons.ssdc.notifysvc.utils.JsonHelper.convertJsonBytesToEvent;
+
+import com.google.protobuf.ByteString;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EmailRequestEnriched;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventHeaderDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.PayloadDTO;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequest;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.SmsRequestEnriched;
+
+class JsonHelperTest {
+  private static final String HEADER =
+      "\"header\":{\"version\":\"0.5.0\",\"topic\":\"test-topic\",\"messageId\":\""
+          + UUID.randomUUID()
+          + "\"}";
+
+  @Test
+  void testOnlyExpectedPayloadBound() {
+    // Given
+    UUID caseId = UUID.randomUUID();
+    String json =
+        "{"
+            + HEADER
+            + ",\"payload\":{\"smsConfirmation\":{\"packCode\":\"OTHER\"},"
+            + "\"smsRequest\":{\"caseId\":\""
+            + caseId
+            + "\",\"packCode\":\"TEST_PACK_CODE\",\"personalisation\":{\"name\":\"Jo\"}}}}";
+
+    // When
+    EventDTO event = convertJsonBytesToEvent(ByteString.copyFromUtf8(json), SmsRequest.class);
+
+    // Then
+    assertThat(event.getHeader().getTopic()).isEqualTo("test-topic");
+    assertThat(event.getPayload().getSmsRequest().getCaseId()).isEqualTo(caseId);
+    assertThat(event.getPayload().getSmsRequest().getPersonalisation()).containsEntry("name", "Jo");
+    assertThat(event.getPayload().getSmsConfirmation()).isNull();
+  }
+
+  @Test
+  void testPayloadAheadOfHeaderBound() {
+    // Given
+    String json =
+        "{\"payload\":{\"smsRequestEnriched\":{\"packCode\":\"TEST_PACK_CODE\"}}," + HEADER + "}";
+
+    // When
+    EventDTO event =
+        convertJsonBytesToEvent(ByteString.copyFromUtf8(json), SmsRequestEnriched.class);
+
+    // Then
+    assertThat(event.getHeader().getTopic()).isEqualTo("test-topic");
+    assertThat(event.getPayload().getSmsRequestEnriched().getPackCode())
+        .isEqualTo("TEST_PACK_CODE");
+  }
+
+  @Test
+  void testUnsupportedVersionRejectedBeforePayloadRead() {
+    // Given a payload which could not be bound
+    String json =
+        "{\"header\":{\"version\":\"0.1.0\"},\"payload\":{\"smsRequest\":\"not an sms request\"}}";
+
+    // When
+    RuntimeException thrown =
+        assertThrows(
+            RuntimeException.class,
+            () -> convertJsonBytesToEvent(ByteString.copyFromUtf8(json), SmsRequest.class));
+
+    // Then
+    assertThat(thrown.getMessage()).startsWith("Unsupported message version. Got 0.1.0");
+  }
+
+  @Test
+  void testMissingHeaderRejected() {
+    // Given
+    String json = "{\"payload\":{\"smsRequest\":{}}}";
+
+    // When
+    RuntimeException thrown =
+        assertThrows(
+            RuntimeException.class,
+            () -> convertJsonBytesToEvent(ByteString.copyFromUtf8(json), SmsRequest.class));
+
+    // Then
+    assertThat(thrown.getMessage()).isEqualTo("Event has no header");
+  }
+
+  @Test
+  void testEventWrittenByCodecReadBack() {
+    // Given
+    EventHeaderDTO header = new EventHeaderDTO();
+    header.setVersion("0.5.0");
+    header.setTopic("test-topic");
+    header.setMessageId(UUID.randomUUID());
+    EmailRequestEnriched emailRequestEnriched = new EmailRequestEnriched();
+    emailRequestEnriched.setCaseId(UUID.randomUUID());
+    emailRequestEnriched.setEmail("example@example.test");
+    emailRequestEnriched.setPersonalisation(Map.of("name", "Jo"));
+    PayloadDTO payload = new PayloadDTO();
+    payload.setEmailRequestEnriched(emailRequestEnriched);
+
+    // When
+    EventDTO event =
+        convertJsonBytesToEvent(
+            ByteString.copyFrom(EventCodec.writeEventAsBytes(new EventDTO(header, payload))),
+            EmailRequestEnriched.class);
+
+    // Then
+    assertThat(event.getHeader()).isEqualTo(header);
+    assertThat(event.getPayload().getEmailRequestEnriched()).isEqualTo(emailRequestEnriched);
+  }
+}
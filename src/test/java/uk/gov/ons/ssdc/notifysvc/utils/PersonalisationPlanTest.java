@@ -0,0 +1,83 @@
+package uk.gov.ons.ssdc.notifysvc.utils;
+
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_QID_KEY;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_REQUEST_PREFIX;
+import static uk.gov.ons.ssdc.notifysvc.utils.Constants.TEMPLATE_SENSITIVE_PREFIX;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PersonalisationPlanTest {
+
+  @Test
+  void testPlanIsReusedForSameTemplate() {
+    // Given
+    String[] template = new String[] {"foo", TEMPLATE_SENSITIVE_PREFIX + "bar"};
+
+    // When
+    PersonalisationPlan firstPlan = PersonalisationPlan.forTemplate(template);
+    PersonalisationPlan secondPlan = PersonalisationPlan.forTemplate(template);
+
+    // Then
+    assertThat(secondPlan).isSameAs(firstPlan);
+    assertThat(firstPlan.requiresNewUacQid()).isFalse();
+  }
+
+  @Test
+  void testPlanIsKeyedOnTemplateContents() {
+    // Given
+    String[] template = new String[] {"foo", TEMPLATE_REQUEST_PREFIX + "baz"};
+    String[] reloadedTemplate = new String[] {"foo", TEMPLATE_REQUEST_PREFIX + "baz"};
+    String[] editedTemplate = new String[] {"foo", TEMPLATE_QID_KEY};
+
+    // When
+    PersonalisationPlan plan = PersonalisationPlan.forTemplate(template);
+
+    // Then
+    assertThat(PersonalisationPlan.forTemplate(reloadedTemplate)).isSameAs(plan);
+    assertThat(PersonalisationPlan.forTemplate(editedTemplate)).isNotSameAs(plan);
+  }
+
+  @Test
+  void testPlanRequiresNewUacQid() {
+    // Given
+    String[] template = new String[] {"foo", TEMPLATE_REQUEST_PREFIX + "bar", TEMPLATE_QID_KEY};
+
+    // When
+    PersonalisationPlan plan = PersonalisationPlan.compile(template);
+
+    // Then
+    assertThat(plan.requiresNewUacQid()).isTrue();
+  }
+
+  @Test
+  void testBuildPersonalisationFromProjectedValues() {
+    // Given
+    String[] template =
+        new String[] {
+          "foo", TEMPLATE_SENSITIVE_PREFIX + "foo", "bar", "foo", TEMPLATE_REQUEST_PREFIX + "baz"
+        };
+    PersonalisationPlan plan = PersonalisationPlan.compile(template);
+
+    // When
+    Map<String, String> personalisation =
+        plan.buildPersonalisation(
+            new String[] {"fooValue", "barValue"},
+            new String[] {"secretFoo"},
+            null,
+            null,
+            Map.of("baz", "bazValue"));
+
+    // Then
+    assertThat(plan.getSampleKeys()).containsExactly("foo", "bar");
+    assertThat(plan.getSensitiveKeys()).containsExactly("foo");
+    assertThat(personalisation)
+        .containsOnly(
+            entry("foo", "fooValue"),
+            entry(TEMPLATE_SENSITIVE_PREFIX + "foo", "secretFoo"),
+            entry("bar", "barValue"),
+            entry(TEMPLATE_REQUEST_PREFIX + "baz", "bazValue"));
+  }
+}
@@ -0,0 +1,68 @@
+package uk.gov.ons.ssdc.notifysvc.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.ons.ssdc.notifysvc.model.dto.event.EventDTO;
+
+@ExtendWith(MockitoExtension.class)
+class PubSubHelperTest {
+
+  @Mock PubSubTemplate pubSubTemplate;
+
+  @InjectMocks PubSubHelper pubSubHelper;
+
+  @Test
+  void testPublishAsyncReturnsPublishFuture() {
+    // Given
+    CompletableFuture<String> publishFuture = new CompletableFuture<>();
+    when(pubSubTemplate.publish(eq("test-topic"), any(byte[].class))).thenReturn(publishFuture);
+
+    // When
+    CompletableFuture<String> actualFuture =
+        pubSubHelper.publishAsync("test-topic", new EventDTO());
+
+    // Then
+    assertThat(actualFuture).isSameAs(publishFuture);
+  }
+
+  @Test
+  void testAwaitPublishedWaitsForAllPublishes() {
+    // Given
+    CompletableFuture<String> firstPublish = CompletableFuture.completedFuture("1");
+    CompletableFuture<String> secondPublish = CompletableFuture.completedFuture("2");
+
+    // When
+    pubSubHelper.awaitPublished(firstPublish, secondPublish);
+
+    // Then
+    assertThat(firstPublish).isDone();
+    assertThat(secondPublish).isDone();
+  }
+
+  @Test
+  void testAwaitPublishedThrowsWhenAnyPublishFails() {
+    // Given
+    CompletableFuture<String> successfulPublish = CompletableFuture.completedFuture("1");
+    CompletableFuture<String> failedPublish =
+        CompletableFuture.failedFuture(new IllegalStateException("Publish failed"));
+
+    // When, then throws
+    RuntimeException thrown =
+        assertThrows(
+            RuntimeException.class,
+            () -> pubSubHelper.awaitPublished(successfulPublish, failedPublish));
+    assertThat(thrown.getMessage()).isEqualTo("Error publishing message to PubSub topic ");
+    assertThat(thrown.getCause().getCause()).isInstanceOf(IllegalStateException.class);
+  }
+}